@@ -1,5 +1,4 @@
-import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Common elements of predators and preys.
@@ -14,22 +13,36 @@ public abstract class Animal extends Organism
     private boolean female;
     // Whether the animal is infected
     private boolean infected;
-    // Randomizer to generate randomness in simulation.
-    private static final Random rand = Randomizer.getRandom();
-    // Animal's age
-    private int age;
+    // This animal's own stream of random numbers.
+    private final SplittableRandom random;
+    // The parameters of the simulation the animal belongs to.
+    private final Parameters parameters;
+    // The step at which the animal's age was zero.
+    private long birthStep;
+    // The step at which the animal last ate, or was last full.
+    private long fedStep;
+    // Whether the animal dies of old age or hunger at this step.
+    private boolean dying;
+    // The schedule counting the steps and the animal's death, or null
+    // until the animal is first stepped. Steps are counted from zero
+    // until then.
+    private DeathSchedule schedule;
 
     /**
      * Constructor for objects of class Animal.
+     * @param parameters The parameters of the simulation.
      * @param location The animal's location.
+     * @param random The animal's own stream of random numbers.
      */
-    public Animal(Location location)
+    public Animal(Parameters parameters, Location location, SplittableRandom random)
     {
         super(location);
-        Random random = new Random();
+        this.parameters = parameters;
+        this.random = random;
         female = random.nextBoolean();
-        age=0;
-        if (rand.nextDouble() < 0.005) {
+        birthStep = 0;
+        fedStep = 0;
+        if (random.nextDouble() < parameters.get(Parameter.INFECTION_PROBABILITY)) {
             infected = true;
         }
         else {
@@ -38,43 +51,156 @@ public abstract class Animal extends Organism
     }
 
     /**
-     * Act.
+     * Act: decide what to do and then do it.
      * @param currentField The current state of the field.
      * @param nextFieldState The new state being built.
      */
-    abstract public void act(Field currentField, Field nextFieldState, Time time, Weather weather);
-    
+    public void act(Field currentField, Field nextFieldState, Time time, Weather weather)
+    {
+        resolve(propose(currentField, time, weather), nextFieldState);
+    }
+
     /**
-     * Check whether the animal will act at this step, considering weather conditions.
-     * @param weather The current weather conditions
-     * @return true if the animal acts, otherwise false.
+     * Decide what to do at this step. Only the current field and this
+     * animal's own state are read or changed, so animals in the same
+     * field can propose at the same time. Whether the animal dies of
+     * old age or hunger has already been decided by its DeathSchedule.
+     * @param currentField The current state of the field.
+     * @param time The time of day/night.
+     * @param weather The current weather conditions.
+     * @return What the animal intends to do.
      */
-    public boolean canAct(Weather weather) {
-        if (weather == Weather.CLEAR) {
-            return true;
+    public Proposal propose(Field currentField, Time time, Weather weather)
+    {
+        int cell = currentField.getCellIndex(getLocation());
+        Proposal proposal = new Proposal(cell, currentField.randomNeighbourOrder(random));
+        if(dying) {
+            proposal.dies = true;
+            return proposal;
         }
-        else if (weather == Weather.RAIN && rand.nextDouble() < 0.6) {
-            return true;
+        // if the animal can act considering weather circumstances.
+        if(canAct(weather)) {
+            proposal.acts = true;
+            proposeAction(currentField, time, proposal);
         }
-        else if (weather == Weather.CLOUDY && rand.nextDouble() < 0.8) {
-            return true;
+        return proposal;
+    }
+
+    /**
+     * Carry out a proposal made at this step, placing the animal and
+     * any young in the next state of the field. Infection is caught
+     * from the animals already placed around it. An animal whose cell
+     * has already been taken by an animal resolved before it moves to
+     * a free adjacent cell instead, and dies of overcrowding if there
+     * is none.
+     * @param proposal The proposal made by this animal.
+     * @param nextFieldState The new state being built.
+     */
+    public void resolve(Proposal proposal, Field nextFieldState)
+    {
+        if(!isAlive()) {
+            // Eaten by a predator resolved earlier in the step.
+            return;
         }
-        else if (weather == Weather.STORM && rand.nextDouble() < 0.4) {
-            return true;
+        if(proposal.dies) {
+            setDead();
+            return;
+        }
+        // Check if the animal is infected in the next field state.
+        if(hasInfectedNeighbour(nextFieldState)) {
+            infected = true;
+        }
+        if(infected && randDouble() < parameters.get(Parameter.INFECTION_DEATH_PROBABILITY)) {
+            // 50% chance of dying due to infection.
+            setDead();
+            return;
+        }
+        int cell = proposal.cell;
+        int target = cell;
+        if(proposal.acts) {
+            if(proposal.births > 0
+               && nextFieldState.getFreeAdjacentCell(cell, proposal.order) != Field.NO_CELL) {
+                giveBirth(nextFieldState, cell, proposal.order, proposal.births);
+            }
+            target = chooseCell(proposal, nextFieldState);
+        }
+        if(!claimCell(nextFieldState, target, cell, proposal.order)) {
+            // Overcrowding.
+            setDead();
+        }
+    }
+
+    /**
+     * Claim a cell of the next field state, trying the target first and
+     * then the free cells next to the given cell in the given order.
+     * @param nextFieldState The new state being built.
+     * @param target The cell to try first, or Field.NO_CELL.
+     * @param cell The cell whose neighbours are tried next.
+     * @param order The order to try the neighbours in.
+     * @return true if the animal was placed.
+     */
+    protected boolean claimCell(Field nextFieldState, int target, int cell, int[] order)
+    {
+        while(target != Field.NO_CELL) {
+            Location location = nextFieldState.getLocation(target);
+            if(nextFieldState.claimAnimal(this, location)) {
+                setLocation(location);
+                return true;
+            }
+            target = nextFieldState.getFreeAdjacentCell(cell, order);
         }
         return false;
     }
 
+    /**
+     * Fill in what the animal means to do when it is able to act:
+     * how many young it has, what it eats and whether it moves.
+     * @param currentField The current state of the field.
+     * @param time The time of day/night.
+     * @param proposal The proposal to fill in.
+     */
+    abstract protected void proposeAction(Field currentField, Time time, Proposal proposal);
+
+    /**
+     * Eat the proposed food if it is still there, and choose the cell
+     * to occupy in the next state of the field.
+     * @param proposal The proposal made by this animal.
+     * @param nextFieldState The new state being built.
+     * @return The chosen cell, or Field.NO_CELL if there is none.
+     */
+    abstract protected int chooseCell(Proposal proposal, Field nextFieldState);
+
+    /**
+     * @return The number of steps the animal stays full after eating.
+     */
+    abstract protected int getFullSteps();
+
+    /**
+     * @return The number of steps after eating at which the animal
+     *         dies of hunger.
+     */
+    abstract protected int getStarvationSteps();
+    
+    /**
+     * Check whether the animal will act at this step, considering weather conditions.
+     * @param weather The current weather conditions
+     * @return true if the animal acts, otherwise false.
+     */
+    public boolean canAct(Weather weather) {
+        return weather == Weather.CLEAR || random.nextDouble() < weather.getActivity();
+    }
+
     /**
      * Checks if there is a compatible mate in the adjacent cells.
      * @param field The field to check for adjacent animals.
      * @return true if a compatible mate is found, false otherwise
      */
     public boolean hasCompatibleMate(Field field) {
-        List<Location> adjacentLocations = field.getAdjacentLocations(getLocation());
-        for (Location loc : adjacentLocations) {
-            Animal animal = field.getAnimalAt(loc);
-            if ((animal != null) && (animal.getClass() == this.getClass()) 
+        int cell = field.getCellIndex(getLocation());
+        for (int direction = 0; direction < Field.DIRECTIONS; direction++) {
+            int next = field.getNeighbour(cell, direction);
+            Animal animal = (next != Field.NO_CELL) ? field.getAnimalAt(next) : null;
+            if ((animal != null) && (animal.getSpecies() == getSpecies()) 
                 && (animal.isFemale() != this.isFemale())) {
                 return true;
             }
@@ -83,17 +209,20 @@ public abstract class Animal extends Organism
     }
     
     /**
-     * Check whether this animal is infected.
-     * @param field The current state of the field.
+     * Checks if there is an infected animal in the adjacent cells.
+     * @param field The field to check for adjacent animals.
+     * @return true if an infected neighbour is found, false otherwise.
      */
-    public void checkIfInfected(Field field) {
-        List<Location> adjacentLocations = field.getAdjacentLocations(getLocation());
-        for (Location loc : adjacentLocations) {
-            Animal animal = field.getAnimalAt(loc);
+    public boolean hasInfectedNeighbour(Field field) {
+        int cell = field.getCellIndex(getLocation());
+        for (int direction = 0; direction < Field.DIRECTIONS; direction++) {
+            int next = field.getNeighbour(cell, direction);
+            Animal animal = (next != Field.NO_CELL) ? field.getAnimalAt(next) : null;
             if (animal != null && animal.isInfected()) {
-                infected= true;
+                return true;
             }
         }
+        return false;
     }
     
     /**
@@ -120,7 +249,7 @@ public abstract class Animal extends Organism
      */
     public int randInt(int max)
     {
-        return rand.nextInt(max);
+        return random.nextInt(max);
     }
     
     /**
@@ -129,16 +258,25 @@ public abstract class Animal extends Organism
      */
     public double randDouble()
     {
-        return rand.nextDouble();
+        return random.nextDouble();
     }
-    
+
     /**
-     * Increase the age. This could result in the animal's death.
+     * Return this animal's stream of random numbers. Offspring are
+     * given a stream split from it.
+     * @return The random number stream.
      */
-    public void incrementAge()
+    protected SplittableRandom getRandom()
     {
-        age++;
-        checkIfTooOld(); // Check if the animal is too old to be alive.
+        return random;
+    }
+
+    /**
+     * @return The parameters of the simulation the animal belongs to.
+     */
+    protected Parameters getParameters()
+    {
+        return parameters;
     }
     
     /**
@@ -147,7 +285,7 @@ public abstract class Animal extends Organism
      */
     public int getAge()
     {
-        return age;
+        return (int) (currentStep() - birthStep);
     }
     
     /**
@@ -156,11 +294,164 @@ public abstract class Animal extends Organism
      */
     public void setAge(int newAge)
     {
-        age = newAge;
+        birthStep = currentStep() - newAge;
+        if(schedule != null) {
+            schedule.add(this);
+        }
+    }
+
+    /**
+     * Record that the animal has eaten at this step. Its death from
+     * hunger is put back lazily, when the step it was due comes round.
+     */
+    protected void feed()
+    {
+        fedStep = currentStep();
+    }
+
+    /**
+     * Make the animal hungry, as if it last ate just long enough ago to
+     * no longer be full.
+     */
+    protected void makeHungry()
+    {
+        fedStep = currentStep() - getFullSteps();
+    }
+
+    /**
+     * @return true if the animal ate recently enough to be full.
+     */
+    protected boolean isFull()
+    {
+        return currentStep() - fedStep < getFullSteps();
+    }
+
+    /**
+     * @return The step at which the animal dies of old age or hunger,
+     *         unless it eats first.
+     */
+    long getDeathStep()
+    {
+        return Math.min(birthStep + getMaxAge() + 1, fedStep + getStarvationSteps());
+    }
+
+    /**
+     * @return The step at which the animal's age was zero.
+     */
+    long getBirthStep()
+    {
+        return birthStep;
+    }
+
+    /**
+     * @return The step at which the animal last ate, or was last full.
+     */
+    long getFedStep()
+    {
+        return fedStep;
+    }
+
+    /**
+     * Infect the animal, e.g. from an infected neighbour.
+     */
+    void setInfected()
+    {
+        infected = true;
+    }
+
+    /**
+     * Mark the animal to die of old age or hunger at this step.
+     */
+    void setDying()
+    {
+        dying = true;
+    }
+
+    /**
+     * Join a death schedule, counting steps from its current step on,
+     * and schedule the animal's death.
+     * @param schedule The schedule.
+     */
+    void attach(DeathSchedule schedule)
+    {
+        long step = schedule.getStep();
+        birthStep += step;
+        fedStep += step;
+        this.schedule = schedule;
+        schedule.add(this);
+    }
+
+    /**
+     * @return The number of steps taken, as counted by the animal's
+     *         schedule.
+     */
+    private long currentStep()
+    {
+        return schedule == null ? 0 : schedule.getStep();
     }
     
     /**
-     *  Check if the animal is too old to live.
+     * Place young into free cells adjacent to this animal.
+     * @param nextFieldState The new state being built.
+     * @param cell The cell the young are born around.
+     * @param order The order in which to try the adjacent cells.
+     * @param births The number of young to place, room permitting.
+     */
+    protected void giveBirth(Field nextFieldState, int cell, int[] order, int births)
+    {
+        int freeCell = nextFieldState.getFreeAdjacentCell(cell, order);
+        for (int b = 0; b < births && freeCell != Field.NO_CELL; b++) {
+            Location loc = nextFieldState.getLocation(freeCell);
+            Animal young = offspring(loc);
+            if(!young.claimCell(nextFieldState, freeCell, cell, order)) {
+                break;
+            }
+            if(schedule != null) {
+                young.attach(schedule);
+            }
+            freeCell = nextFieldState.getFreeAdjacentCell(cell, order);
+        }
+    }
+
+    /**
+     * Generate a number representing the number of births,
+     * if it can breed.
+     * @return The number of births (may be zero).
+     */
+    protected int breed()
+    {
+        int births;
+        if(breedSuccess()) {
+            births = birthNumber();
+        }
+        else {
+            births = 0;
+        }
+        return births;
+    }
+
+    /**
+     * Create a new animal of the same species as offspring.
+     * @param loc The location off the new offspring.
+     * @return The offspring.
+     */
+    abstract protected Animal offspring(Location loc);
+
+    /**
+     * An animal can breed successfully if it has reached the breeding
+     * age, and luck is on its side.
+     * @return true if the animal breeds successfully, false otherwise.
+     */
+    abstract protected boolean breedSuccess();
+
+    /**
+     * Generate number of offspring if breeding is successful.
+     * @return Number of offspring.
+     */
+    abstract protected int birthNumber();
+
+    /**
+     * @return The age to which an animal of this species can live.
      */
-    abstract protected void checkIfTooOld();
+    abstract protected int getMaxAge();
 }
@@ -0,0 +1,696 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * A store for the state of the animals of a simulation, which keeps it
+ * in parallel arrays of primitives rather than in one object per
+ * animal, and runs the behaviour of Prey and Predator against them.
+ * Each animal is identified by a handle, an index into the arrays,
+ * which stays the same for the animal's whole life and is reused once
+ * the animal has died. A step walks the handles in order.
+ *
+ * The store runs alongside a Field rather than replacing it. The Animal
+ * objects stay in the field for the view, the statistics and the death
+ * schedule, and the store writes back to them what those read: where
+ * each animal is, whether it is alive or infected, and when it last
+ * ate. The traits of the species come from the animals' Parameters,
+ * deaths from old age and hunger from the DeathSchedule, and every
+ * decision is drawn from the animal's own random stream in the same
+ * order as Animal.propose and Animal.resolve draw it. A step therefore
+ * has the same outcome as with SequentialStepEngine.
+ *
+ * The store holds the state of one field. Given a field it did not
+ * build, it reloads itself from the field's animals.
+ *
+ * @author Alexander Sukhin
+ * @version 27/02/2025
+ */
+public class AnimalStore
+{
+    // The bits of an animal's flags.
+    private static final byte ALIVE = 1;
+    private static final byte FEMALE = 2;
+    private static final byte INFECTED = 4;
+    private static final byte DYING = 8;
+    // Marks an empty cell in a grid.
+    private static final int EMPTY = -1;
+
+    // The species, indexed by id.
+    private static final Species[] SPECIES = Species.values();
+    // Whether each species eats plants, and so acts as a prey.
+    private static final boolean[] GRAZES = new boolean[Species.COUNT];
+
+    static {
+        for(Species kind : SPECIES) {
+            GRAZES[kind.id()] = kind.eats(Species.LEAF_CELL);
+        }
+    }
+
+    // The parameters the traits were read from.
+    private Parameters parameters;
+    // The traits of each species, indexed by species id.
+    private final int[] breedingAge = new int[Species.COUNT];
+    private final double[] breedingProbability = new double[Species.COUNT];
+    private final int[] maxLitterSize = new int[Species.COUNT];
+    private final int[] fullSteps = new int[Species.COUNT];
+    // For prey: the likelihood of moving at night.
+    private final double[] nightMoveProbability = new double[Species.COUNT];
+    // For predators: the likelihood of a successful hunt by day and by night.
+    private final double[] dayHuntProbability = new double[Species.COUNT];
+    private final double[] nightHuntProbability = new double[Species.COUNT];
+    // The likelihood of an infected animal dying at each step.
+    private double infectionDeathProbability;
+
+    // The state of each animal, indexed by handle.
+    private byte[] species = new byte[0];
+    private byte[] flags = new byte[0];
+    private int[] cell = new int[0];
+    private long[] birthStep = new long[0];
+    private long[] fedStep = new long[0];
+    private SplittableRandom[] random = new SplittableRandom[0];
+    // The Animal standing for each animal in the field.
+    private Animal[] animal = new Animal[0];
+    // The position of each animal in the live list it was last added to.
+    private int[] liveSlot = new int[0];
+    // The number of handles handed out so far.
+    private int handleCount;
+    // Handles of dead animals that can be reused.
+    private int[] freeHandles = new int[64];
+    private int freeCount;
+    // Handles of animals that died during this step. They are only
+    // reused from the next step, as the current grid still refers to them.
+    private int[] dead = new int[64];
+    private int deadCount;
+
+    // The handle in each cell, for the current state and for the
+    // state being built. There is an entry for every cell, as in a
+    // densely stored field.
+    private int[] grid = new int[0];
+    private int[] nextGrid = new int[0];
+    // The cells written in each grid, so that it can be cleared cheaply.
+    private int[] written = new int[64];
+    private int writtenCount;
+    private int[] nextWritten = new int[64];
+    private int nextWrittenCount;
+    // The handles of the live animals, in the order of the field's
+    // animals, which is the order they act in.
+    private int[] live = new int[64];
+    private int liveCount;
+    private int[] nextLive = new int[64];
+    private int nextLiveCount;
+
+    // The current state of the field and the state being built.
+    private Field field, nextField;
+    // The schedule of the animals' deaths.
+    private DeathSchedule schedule;
+    // The current step, as counted by the schedule.
+    private long step;
+
+    /**
+     * Let every animal in the current field act, placing the animals
+     * of the next state of the field. The plants are left to the caller.
+     * @param currentField The current state of the field.
+     * @param nextFieldState The new state being built, which must be empty.
+     * @param time The time of day/night.
+     * @param weather The current weather conditions.
+     */
+    public void step(Field currentField, Field nextFieldState, Time time, Weather weather)
+    {
+        boolean built = currentField == field && schedule != null
+                        && currentField.getDeathSchedule() == schedule;
+        DeathSchedule.step(currentField, nextFieldState);
+        schedule = nextFieldState.getDeathSchedule();
+        step = schedule.getStep();
+        field = currentField;
+        nextField = nextFieldState;
+        if(!built) {
+            load();
+        }
+        markDying();
+
+        // Clear the state left over from two steps ago.
+        for(int i = 0; i < nextWrittenCount; i++) {
+            nextGrid[nextWritten[i]] = EMPTY;
+        }
+        nextWrittenCount = 0;
+        nextLiveCount = 0;
+
+        for(int i = 0; i < liveCount; i++) {
+            int handle = live[i];
+            if((flags[handle] & ALIVE) != 0) {
+                act(handle, time, weather);
+            }
+        }
+
+        for(int i = 0; i < deadCount; i++) {
+            releaseHandle(dead[i]);
+        }
+        deadCount = 0;
+
+        // The old state becomes the spare for the next step.
+        int[] tmp = grid;
+        grid = nextGrid;
+        nextGrid = tmp;
+        tmp = live;
+        live = nextLive;
+        nextLive = tmp;
+        liveCount = nextLiveCount;
+        tmp = written;
+        written = nextWritten;
+        nextWritten = tmp;
+        int count = writtenCount;
+        writtenCount = nextWrittenCount;
+        nextWrittenCount = count;
+        field = nextFieldState;
+        nextField = null;
+    }
+
+    /**
+     * @return The number of live animals.
+     */
+    public int size()
+    {
+        return liveCount;
+    }
+
+    /**
+     * Return the handle of the animal in the given cell of the
+     * current state.
+     * @param location The index of the cell.
+     * @return The handle, or -1 if the cell is empty.
+     */
+    public int getHandleAt(int location)
+    {
+        return grid[location];
+    }
+
+    /**
+     * Return the species of an animal.
+     * @param handle The animal's handle.
+     * @return The animal's species.
+     */
+    public Species getSpecies(int handle)
+    {
+        return SPECIES[species[handle]];
+    }
+
+    /**
+     * @param handle The animal's handle.
+     * @return The animal's age.
+     */
+    public int getAge(int handle)
+    {
+        return (int) (step - birthStep[handle]);
+    }
+
+    /**
+     * @param handle The animal's handle.
+     * @return The index of the animal's cell.
+     */
+    public int getCell(int handle)
+    {
+        return cell[handle];
+    }
+
+    /**
+     * @param handle The animal's handle.
+     * @return true if the animal is alive.
+     */
+    public boolean isAlive(int handle)
+    {
+        return (flags[handle] & ALIVE) != 0;
+    }
+
+    /**
+     * @param handle The animal's handle.
+     * @return true if the animal is infected.
+     */
+    public boolean isInfected(int handle)
+    {
+        return (flags[handle] & INFECTED) != 0;
+    }
+
+    /**
+     * What an animal does at each step: first what it means to do,
+     * decided from the current state as in Animal.propose, and then
+     * carrying it out against the state being built, as in
+     * Animal.resolve.
+     * @param handle The animal's handle.
+     * @param time The time of day/night.
+     * @param weather The current weather conditions.
+     */
+    private void act(int handle, Time time, Weather weather)
+    {
+        if((flags[handle] & DYING) != 0) {
+            die(handle);
+            return;
+        }
+        SplittableRandom rand = random[handle];
+        int kind = species[handle];
+        int here = cell[handle];
+        int[] order = field.randomNeighbourOrder(rand);
+        boolean acts = weather == Weather.CLEAR || rand.nextDouble() < weather.getActivity();
+        int births = 0;
+        boolean moves = false;
+        int foodCell = Field.NO_CELL;
+        LeafCell leaf = null;
+        int prey = EMPTY;
+        if(acts) {
+            births = breed(handle, rand);
+            if(GRAZES[kind]) {
+                if(step - fedStep[handle] >= fullSteps[kind]) {
+                    int[] search = field.randomNeighbourOrder(rand);
+                    for(int i = 0; leaf == null && i < search.length; i++) {
+                        int next = field.getNeighbour(here, search[i]);
+                        if(next != Field.NO_CELL && field.getPlantAt(next) instanceof LeafCell leafCell) {
+                            leaf = leafCell;
+                            foodCell = next;
+                        }
+                    }
+                }
+                moves = time == Time.DAY
+                        || (time == Time.NIGHT && rand.nextDouble() < nightMoveProbability[kind]);
+            }
+            else {
+                double success = (time == Time.NIGHT) ? nightHuntProbability[kind]
+                                                      : dayHuntProbability[kind];
+                int[] search = field.randomNeighbourOrder(rand);
+                for(int i = 0; prey == EMPTY && i < search.length; i++) {
+                    int next = field.getNeighbour(here, search[i]);
+                    int other = (next != Field.NO_CELL) ? grid[next] : EMPTY;
+                    if(other != EMPTY && SPECIES[kind].eats(SPECIES[species[other]])
+                       && rand.nextDouble() <= success) {
+                        prey = other;
+                        foodCell = next;
+                    }
+                }
+            }
+        }
+
+        if((flags[handle] & INFECTED) == 0 && hasInfectedNeighbour(here)) {
+            flags[handle] |= INFECTED;
+            animal[handle].setInfected();
+        }
+        if((flags[handle] & INFECTED) != 0 && rand.nextDouble() < infectionDeathProbability) {
+            die(handle);
+            return;
+        }
+        int target = here;
+        if(acts) {
+            if(births > 0 && freeAdjacentCell(here, order) != Field.NO_CELL
+               && (!GRAZES[kind] || hasCompatibleMate(handle, here))) {
+                giveBirth(handle, here, order, births);
+            }
+            if(GRAZES[kind]) {
+                target = graze(handle, leaf, foodCell, here, order, moves);
+            }
+            else {
+                target = hunt(handle, prey, foodCell, here, order);
+            }
+        }
+        if(!claimCell(handle, target, here, order)) {
+            // Overcrowding.
+            die(handle);
+        }
+    }
+
+    /**
+     * Draw the number of young of an animal, as in Animal.breed.
+     * @param handle The animal's handle.
+     * @param rand The animal's random stream.
+     * @return The number of births (may be zero).
+     */
+    private int breed(int handle, SplittableRandom rand)
+    {
+        int kind = species[handle];
+        if(step - birthStep[handle] >= breedingAge[kind]
+           && rand.nextDouble() <= breedingProbability[kind]) {
+            return rand.nextInt(maxLitterSize[kind]) + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Eat the chosen leaf if no other prey has eaten it first, then
+     * choose where to go; see Prey.chooseCell.
+     * @return The chosen cell, or Field.NO_CELL if there is none.
+     */
+    private int graze(int handle, LeafCell leaf, int foodCell, int here, int[] order, boolean moves)
+    {
+        int nextCell = Field.NO_CELL;
+        if(leaf != null && leaf.isAlive()) {
+            leaf.removePlant();
+            feed(handle);
+            nextCell = foodCell;
+        }
+        int freeCell = freeAdjacentCell(here, order);
+        if(nextCell == Field.NO_CELL && freeCell != Field.NO_CELL && moves) {
+            nextCell = freeCell;
+        }
+        else if(freeCell != Field.NO_CELL) {
+            nextCell = here;
+        }
+        return nextCell;
+    }
+
+    /**
+     * Eat the chosen prey if it is still alive and move into its cell,
+     * or else move to a free cell; see Predator.chooseCell.
+     * @return The chosen cell, or Field.NO_CELL if there is none.
+     */
+    private int hunt(int handle, int prey, int foodCell, int here, int[] order)
+    {
+        if(prey != EMPTY && (flags[prey] & ALIVE) != 0) {
+            int slot = liveSlot[prey];
+            if(slot < nextLiveCount && nextLive[slot] == prey) {
+                // It has already moved into the state being built.
+                nextGrid[cell[prey]] = EMPTY;
+                removeNextLive(prey);
+                nextField.removeAnimal(animal[prey]);
+            }
+            die(prey);
+            feed(handle);
+            return foodCell;
+        }
+        return freeAdjacentCell(here, order);
+    }
+
+    /**
+     * Place young into free cells adjacent to an animal, as in
+     * Animal.giveBirth.
+     * @param handle The parent's handle.
+     * @param here The cell the young are born around.
+     * @param order The order in which to try the adjacent cells.
+     * @param births The number of young to place, room permitting.
+     */
+    private void giveBirth(int handle, int here, int[] order, int births)
+    {
+        Animal parent = animal[handle];
+        int freeCell = freeAdjacentCell(here, order);
+        for(int b = 0; b < births && freeCell != Field.NO_CELL; b++) {
+            Animal young = parent.offspring(nextField.getLocation(freeCell));
+            young.attach(schedule);
+            place(add(young, freeCell), freeCell);
+            freeCell = freeAdjacentCell(here, order);
+        }
+    }
+
+    /**
+     * Claim a cell of the state being built, trying the target first
+     * and then the free cells next to the given cell in the given order.
+     * @return true if the animal was placed.
+     */
+    private boolean claimCell(int handle, int target, int here, int[] order)
+    {
+        while(target != Field.NO_CELL) {
+            if(nextGrid[target] == EMPTY) {
+                place(handle, target);
+                return true;
+            }
+            target = freeAdjacentCell(here, order);
+        }
+        return false;
+    }
+
+    /**
+     * Check whether any neighbour in the state being built is infected.
+     */
+    private boolean hasInfectedNeighbour(int here)
+    {
+        for(int direction = 0; direction < Field.DIRECTIONS; direction++) {
+            int next = field.getNeighbour(here, direction);
+            if(next != Field.NO_CELL) {
+                int other = nextGrid[next];
+                if(other != EMPTY && (flags[other] & INFECTED) != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check for a neighbour of the same species and the other sex
+     * in the state being built.
+     */
+    private boolean hasCompatibleMate(int handle, int here)
+    {
+        for(int direction = 0; direction < Field.DIRECTIONS; direction++) {
+            int next = field.getNeighbour(here, direction);
+            if(next != Field.NO_CELL) {
+                int other = nextGrid[next];
+                if(other != EMPTY && species[other] == species[handle]
+                   && ((flags[other] ^ flags[handle]) & FEMALE) != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the first cell next to the given one that is free in the
+     * state being built, visiting the neighbours in the given order.
+     */
+    private int freeAdjacentCell(int here, int[] order)
+    {
+        for(int direction : order) {
+            int next = field.getNeighbour(here, direction);
+            if(next != Field.NO_CELL && nextGrid[next] == EMPTY) {
+                return next;
+            }
+        }
+        return Field.NO_CELL;
+    }
+
+    /**
+     * Record that an animal has eaten at this step.
+     */
+    private void feed(int handle)
+    {
+        fedStep[handle] = step;
+        animal[handle].feed();
+    }
+
+    /**
+     * Place an animal in a free cell of the state being built.
+     */
+    private void place(int handle, int location)
+    {
+        Location where = nextField.getLocation(location);
+        boolean placed = nextField.claimAnimal(animal[handle], where);
+        assert placed;
+        animal[handle].setLocation(where);
+        nextGrid[location] = handle;
+        nextWritten = append(nextWritten, nextWrittenCount++, location);
+        cell[handle] = location;
+        liveSlot[handle] = nextLiveCount;
+        nextLive = append(nextLive, nextLiveCount++, handle);
+    }
+
+    /**
+     * Kill an animal that is not in the state being built.
+     */
+    private void die(int handle)
+    {
+        flags[handle] &= ~ALIVE;
+        animal[handle].setDead();
+        dead = append(dead, deadCount++, handle);
+    }
+
+    /**
+     * Remove an animal from the next live list by moving the last
+     * entry into its slot, as the field's registry does.
+     */
+    private void removeNextLive(int handle)
+    {
+        int slot = liveSlot[handle];
+        int last = nextLive[--nextLiveCount];
+        nextLive[slot] = last;
+        liveSlot[last] = slot;
+    }
+
+    /**
+     * Mark the animals the schedule has marked to die at this step.
+     * An animal's place in the live list is its place in the field's
+     * list of animals.
+     */
+    private void markDying()
+    {
+        List<Animal> animals = field.getAnimals();
+        for(Animal dying : schedule.getDying()) {
+            int slot = animals.indexOf(dying);
+            if(slot >= 0) {
+                flags[live[slot]] |= DYING;
+            }
+        }
+    }
+
+    /**
+     * Forget the animals held and take those of the current field
+     * instead, in the order of its list of animals.
+     */
+    private void load()
+    {
+        Arrays.fill(animal, 0, handleCount, null);
+        Arrays.fill(random, 0, handleCount, null);
+        handleCount = 0;
+        freeCount = 0;
+        deadCount = 0;
+        int area = field.getDepth() * field.getWidth();
+        if(grid.length != area) {
+            grid = new int[area];
+            nextGrid = new int[area];
+        }
+        Arrays.fill(grid, EMPTY);
+        Arrays.fill(nextGrid, EMPTY);
+        writtenCount = 0;
+        nextWrittenCount = 0;
+        liveCount = 0;
+
+        List<Animal> animals = field.getAnimals();
+        if(!animals.isEmpty()) {
+            readTraits(animals.get(0).getParameters());
+        }
+        for(Animal each : animals) {
+            int location = field.getCellIndex(each.getLocation());
+            int handle = add(each, location);
+            grid[location] = handle;
+            written = append(written, writtenCount++, location);
+            liveSlot[handle] = liveCount;
+            live = append(live, liveCount++, handle);
+        }
+    }
+
+    /**
+     * Take on the state of an animal, reusing a free handle if there
+     * is one. The animal is not placed in either grid.
+     * @param each The animal.
+     * @param location The index of the animal's cell.
+     * @return The animal's handle.
+     */
+    private int add(Animal each, int location)
+    {
+        int handle;
+        if(freeCount > 0) {
+            handle = freeHandles[--freeCount];
+        }
+        else {
+            handle = handleCount++;
+            if(handle == species.length) {
+                grow();
+            }
+        }
+        byte state = ALIVE;
+        if(each.isFemale()) {
+            state |= FEMALE;
+        }
+        if(each.isInfected()) {
+            state |= INFECTED;
+        }
+        flags[handle] = state;
+        species[handle] = (byte) each.getSpecies().id();
+        cell[handle] = location;
+        birthStep[handle] = each.getBirthStep();
+        fedStep[handle] = each.getFedStep();
+        random[handle] = each.getRandom();
+        animal[handle] = each;
+        return handle;
+    }
+
+    /**
+     * Make a dead animal's handle available for reuse.
+     */
+    private void releaseHandle(int handle)
+    {
+        animal[handle] = null;
+        random[handle] = null;
+        freeHandles = append(freeHandles, freeCount++, handle);
+    }
+
+    /**
+     * Enlarge the per-animal arrays.
+     */
+    private void grow()
+    {
+        int capacity = Math.max(species.length * 2, 1024);
+        species = Arrays.copyOf(species, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        cell = Arrays.copyOf(cell, capacity);
+        birthStep = Arrays.copyOf(birthStep, capacity);
+        fedStep = Arrays.copyOf(fedStep, capacity);
+        random = Arrays.copyOf(random, capacity);
+        animal = Arrays.copyOf(animal, capacity);
+        liveSlot = Arrays.copyOf(liveSlot, capacity);
+    }
+
+    /**
+     * Read the traits of the species from the parameters of a run,
+     * unless they have been read from them already.
+     * @param runParameters The parameters.
+     */
+    private void readTraits(Parameters runParameters)
+    {
+        if(runParameters == parameters) {
+            return;
+        }
+        parameters = runParameters;
+        setTraits(Species.ARMADILLO, Parameter.ARMADILLO_BREEDING_AGE,
+                  Parameter.ARMADILLO_BREEDING_PROBABILITY, Parameter.ARMADILLO_MAX_LITTER_SIZE);
+        setTraits(Species.DEER, Parameter.DEER_BREEDING_AGE,
+                  Parameter.DEER_BREEDING_PROBABILITY, Parameter.DEER_MAX_LITTER_SIZE);
+        setTraits(Species.OCELOT, Parameter.OCELOT_BREEDING_AGE,
+                  Parameter.OCELOT_BREEDING_PROBABILITY, Parameter.OCELOT_MAX_LITTER_SIZE);
+        setTraits(Species.SNAKE, Parameter.SNAKE_BREEDING_AGE,
+                  Parameter.SNAKE_BREEDING_PROBABILITY, Parameter.SNAKE_MAX_LITTER_SIZE);
+        setTraits(Species.JAGUAR, Parameter.JAGUAR_BREEDING_AGE,
+                  Parameter.JAGUAR_BREEDING_PROBABILITY, Parameter.JAGUAR_MAX_LITTER_SIZE);
+        nightMoveProbability[Species.ARMADILLO.id()] = parameters.get(Parameter.ARMADILLO_NIGHT_MOVE_PROBABILITY);
+        nightMoveProbability[Species.DEER.id()] = parameters.get(Parameter.DEER_NIGHT_MOVE_PROBABILITY);
+        setHunting(Species.OCELOT, Parameter.OCELOT_DAY_HUNT_PROBABILITY,
+                   Parameter.OCELOT_NIGHT_HUNT_PROBABILITY);
+        setHunting(Species.SNAKE, Parameter.SNAKE_DAY_HUNT_PROBABILITY,
+                   Parameter.SNAKE_NIGHT_HUNT_PROBABILITY);
+        setHunting(Species.JAGUAR, Parameter.JAGUAR_DAY_HUNT_PROBABILITY,
+                   Parameter.JAGUAR_NIGHT_HUNT_PROBABILITY);
+        for(Species kind : SPECIES) {
+            fullSteps[kind.id()] = GRAZES[kind.id()] ? parameters.getInt(Parameter.PREY_FULL_STEPS)
+                                                     : parameters.getInt(Parameter.PREDATOR_FULL_STEPS);
+        }
+        infectionDeathProbability = parameters.get(Parameter.INFECTION_DEATH_PROBABILITY);
+    }
+
+    /**
+     * Record the breeding traits of a species.
+     */
+    private void setTraits(Species kind, Parameter age, Parameter probability, Parameter litterSize)
+    {
+        breedingAge[kind.id()] = parameters.getInt(age);
+        breedingProbability[kind.id()] = parameters.get(probability);
+        maxLitterSize[kind.id()] = parameters.getInt(litterSize);
+    }
+
+    /**
+     * Record the hunting success of a predator.
+     */
+    private void setHunting(Species kind, Parameter day, Parameter night)
+    {
+        dayHuntProbability[kind.id()] = parameters.get(day);
+        nightHuntProbability[kind.id()] = parameters.get(night);
+    }
+
+    /**
+     * Store a value at the given index of an array, enlarging the
+     * array if it is full.
+     * @return The array, which may be a new one.
+     */
+    private static int[] append(int[] array, int index, int value)
+    {
+        if(index == array.length) {
+            array = Arrays.copyOf(array, index * 2);
+        }
+        array[index] = value;
+        return array;
+    }
+}
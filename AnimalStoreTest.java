@@ -0,0 +1,65 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * The test class AnimalStoreTest. A run with SoaStepEngine, which acts
+ * on the animals' state in an AnimalStore, must end in the same state
+ * as a run from the same seed with SequentialStepEngine.
+ *
+ * @author  Alexander Sukhin
+ * @version 27/02/2025
+ */
+public class AnimalStoreTest
+{
+    @Test
+    public void sameAsSequential()
+    {
+        assertEquals(run(new SequentialStepEngine(), Parameters.DEFAULTS, 200),
+                     run(new SoaStepEngine(), Parameters.DEFAULTS, 200));
+    }
+
+    @Test
+    public void sameWithOtherParameters()
+    {
+        Parameters parameters = Parameters.DEFAULTS
+            .with(Parameter.INFECTION_PROBABILITY, 0.2)
+            .with(Parameter.SNAKE_BREEDING_PROBABILITY, 0.6)
+            .with(Parameter.PREY_FULL_STEPS, 3);
+        assertEquals(run(new SequentialStepEngine(), parameters, 150),
+                     run(new SoaStepEngine(), parameters, 150));
+    }
+
+    @Test
+    public void sameAfterReset()
+    {
+        StepEngine engine = new SoaStepEngine();
+        run(engine, Parameters.DEFAULTS, 50);
+        // The store must drop the animals of the first run.
+        assertEquals(run(new SequentialStepEngine(), Parameters.DEFAULTS, 100),
+                     run(engine, Parameters.DEFAULTS, 100));
+    }
+
+    /**
+     * Run a simulation and describe its animals.
+     * @param engine The step engine.
+     * @param parameters The parameters of the run.
+     * @param steps The number of steps to run.
+     * @return The animals, in order, with their state.
+     */
+    private static List<String> run(StepEngine engine, Parameters parameters, int steps)
+    {
+        Simulator simulator = new Simulator(60, 80, StorageType.DENSE, false, parameters, 3);
+        simulator.setStepEngine(engine);
+        simulator.simulate(steps);
+        List<String> animals = new ArrayList<>();
+        for(Animal animal : simulator.getField().getAnimals()) {
+            animals.add(animal.getSpecies() + " " + animal.getLocation() + " " + animal.getAge()
+                        + " " + animal.isInfected() + " " + animal.isFemale());
+        }
+        assertTrue(animals.size() > 0);
+        return animals;
+    }
+}
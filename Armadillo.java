@@ -1,5 +1,5 @@
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * A simple model of a armadillo.
@@ -10,34 +10,48 @@ import java.util.Random;
  */
 public class Armadillo extends Prey
 {
-    // Characteristics shared by all armadillos (class variables).
-    // The age at which a armadillo can start to breed.
-    private static final int BREEDING_AGE = 10;
-    // The age to which a armadillo can live.
-    private static final int MAX_AGE = 30;
-    // The likelihood of a armadillo breeding.
-    private static final double BREEDING_PROBABILITY = 0.7;
-    // The maximum number of births.
-    private static final int MAX_LITTER_SIZE = 5;
+    /**
+     * Create a new armadillo. A armadillo may be created with age
+     * zero (a new born) or with a random age.
+     * The default parameters are used.
+     * 
+     * @param randomAge If true, the armadillo will have a random age.
+     * @param location The location within the field.
+     * @param random The animal's own stream of random numbers.
+     */
+    public Armadillo(boolean randomAge, Location location, SplittableRandom random)
+    {
+        this(Parameters.DEFAULTS, randomAge, location, random);
+    }
 
     /**
      * Create a new armadillo. A armadillo may be created with age
      * zero (a new born) or with a random age.
      * 
+     * @param parameters The parameters of the simulation.
      * @param randomAge If true, the armadillo will have a random age.
      * @param location The location within the field.
+     * @param random The animal's own stream of random numbers.
      */
-    public Armadillo(boolean randomAge, Location location)
+    public Armadillo(Parameters parameters, boolean randomAge, Location location, SplittableRandom random)
     {
-        super(location);
+        super(parameters, location, random);
         if(randomAge) {
-            setAge(randInt(MAX_AGE));
+            setAge(randInt(getParameters().getInt(Parameter.ARMADILLO_MAX_AGE)));
         }
         else {
             setAge(0);
         }
     }
 
+    /**
+     * @return The species of this armadillo.
+     */
+    public Species getSpecies()
+    {
+        return Species.ARMADILLO;
+    }
+
     @Override
     public String toString() {
         return "Armadillo{" +
@@ -48,13 +62,11 @@ public class Armadillo extends Prey
     }
 
     /**
-     * Check if the ocelot is too old to live.
+     * @return The age to which an armadillo can live.
      */
-    protected void checkIfTooOld()
+    protected int getMaxAge()
     {
-        if(getAge() > MAX_AGE) {
-            setDead();
-        }
+        return getParameters().getInt(Parameter.ARMADILLO_MAX_AGE);
     }
 
     /**
@@ -64,7 +76,8 @@ public class Armadillo extends Prey
      */
     protected boolean breedSuccess()
     {
-        return getAge() >= BREEDING_AGE && randDouble() <= BREEDING_PROBABILITY;
+        return getAge() >= getParameters().getInt(Parameter.ARMADILLO_BREEDING_AGE)
+            && randDouble() <= getParameters().get(Parameter.ARMADILLO_BREEDING_PROBABILITY);
     }
 
     /**
@@ -73,7 +86,7 @@ public class Armadillo extends Prey
      * @return The offspring.
      */
     protected Animal offspring(Location loc) {
-        Armadillo young = new Armadillo(false,loc);
+        Armadillo young = new Armadillo(getParameters(), false, loc, getRandom().split());
         return young;
     }
 
@@ -82,7 +95,7 @@ public class Armadillo extends Prey
      * @return Number of offspring.
      */
     protected int birthNumber() {
-        return randInt(MAX_LITTER_SIZE) + 1;
+        return randInt(getParameters().getInt(Parameter.ARMADILLO_MAX_LITTER_SIZE)) + 1;
     }
     
     /**
@@ -94,7 +107,7 @@ public class Armadillo extends Prey
         if (time == Time.DAY) {
             return true;
         }
-        else if ((time == Time.NIGHT) && (randDouble() < 0.5)) {
+        else if ((time == Time.NIGHT) && (randDouble() < getParameters().get(Parameter.ARMADILLO_NIGHT_MOVE_PROBABILITY))) {
             return true;
         }
         else {
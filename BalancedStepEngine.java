@@ -0,0 +1,280 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A tiled step engine that keeps the work of its blocks even. The
+ * organisms of the simulation cluster around plants, so equal tiles
+ * leave most threads idle while a few crowded tiles decide how long a
+ * step takes. Every few steps this engine counts the organisms in
+ * each part of the field and re-partitions it: blocks holding much
+ * more than their share are split at their weighted median, and pairs
+ * of neighbouring blocks holding much less are merged back together.
+ *
+ * The blocks are the leaves of a tree of splits, each splitting a
+ * block across its longer side. Splits fall on the lines of a grid of
+ * MIN_TILE_SIZE cells, which is also the grain at which organisms are
+ * counted. The number of blocks aimed for depends only on the size of
+ * the field, never on the number of threads, so the blocks, and with
+ * them the results, are the same however many threads are used.
+ *
+ * @author Aryan Sanvee Vijayan
+ * @version 27/02/2025
+ */
+public class BalancedStepEngine extends TiledStepEngine
+{
+    // The default number of steps between re-partitions.
+    public static final int DEFAULT_INTERVAL = 10;
+    // The number of cells per block aimed for: one block for each
+    // default tile the field would be cut into.
+    private static final int CELLS_PER_BLOCK = DEFAULT_TILE_SIZE * DEFAULT_TILE_SIZE;
+    // The side of the squares organisms are counted in.
+    private static final int GRAIN = MIN_TILE_SIZE;
+
+    // The number of steps between re-partitions.
+    private final int interval;
+    // The number of blocks aimed for.
+    private int targetBlocks;
+    // The tree of splits; its leaves are the blocks.
+    private Node root;
+    // The number of steps since the last re-partition.
+    private int steps;
+    // The number of squares down and across the field.
+    private int grainRows, grainCols;
+    // The number of organisms in the squares above and to the left
+    // of each grid point, for summing the organisms in any block.
+    private int[] sums;
+
+    /**
+     * Create an engine re-partitioning every DEFAULT_INTERVAL steps,
+     * running on the common fork/join pool.
+     */
+    public BalancedStepEngine()
+    {
+        this(DEFAULT_INTERVAL, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create an engine re-partitioning at the given interval.
+     * @param interval The number of steps between re-partitions.
+     * @param pool The pool to run the block tasks in.
+     */
+    public BalancedStepEngine(int interval, ForkJoinPool pool)
+    {
+        super(DEFAULT_TILE_SIZE, pool);
+        if(interval < 1) {
+            throw new IllegalArgumentException("The interval must be at least one step: "
+                                               + interval);
+        }
+        this.interval = interval;
+    }
+
+    @Override
+    protected void layOut(Field field)
+    {
+        root = new Node(0, 0, field.getDepth(), field.getWidth());
+        grainRows = (field.getDepth() + GRAIN - 1) / GRAIN;
+        grainCols = (field.getWidth() + GRAIN - 1) / GRAIN;
+        sums = new int[(grainRows + 1) * (grainCols + 1)];
+        long cells = (long) field.getDepth() * field.getWidth();
+        targetBlocks = (int) Math.max(1, (cells + CELLS_PER_BLOCK - 1) / CELLS_PER_BLOCK);
+        repartition(field);
+    }
+
+    @Override
+    protected void relayOut(Field field)
+    {
+        if(++steps >= interval) {
+            repartition(field);
+        }
+    }
+
+    /**
+     * Re-partition the field from the number of organisms now in it.
+     * @param field The current state of the field.
+     */
+    private void repartition(Field field)
+    {
+        steps = 0;
+        countOrganisms(field);
+        double share = Math.max(1.0, (double) load(root) / targetBlocks);
+        merge(root, share / 2);
+        split(root, share);
+        List<int[]> blocks = new ArrayList<>();
+        collect(root, blocks);
+        setBlocks(blocks.toArray(new int[0][]));
+    }
+
+    /**
+     * Merge the two halves of every split whose halves are both blocks
+     * holding together less than the given load.
+     * @param node The root of the tree to merge in.
+     * @param cold The load below which halves are merged.
+     */
+    private void merge(Node node, double cold)
+    {
+        if(node.first != null) {
+            merge(node.first, cold);
+            merge(node.second, cold);
+            if(node.first.first == null && node.second.first == null && load(node) < cold) {
+                node.first = null;
+                node.second = null;
+            }
+        }
+    }
+
+    /**
+     * Split every block holding more than the given load, until the
+     * parts hold less or can be split no further.
+     * @param node The root of the tree to split in.
+     * @param hot The load above which blocks are split.
+     */
+    private void split(Node node, double hot)
+    {
+        if(node.first == null && load(node) > hot) {
+            splitAtMedian(node);
+        }
+        if(node.first != null) {
+            split(node.first, hot);
+            split(node.second, hot);
+        }
+    }
+
+    /**
+     * Split a block across its longer side, or its shorter side if the
+     * longer cannot be split, where the organisms divide most evenly.
+     * @param node The block.
+     */
+    private void splitAtMedian(Node node)
+    {
+        boolean across = node.bottom - node.top >= node.right - node.left;
+        if(!splitAtMedian(node, across)) {
+            splitAtMedian(node, !across);
+        }
+    }
+
+    /**
+     * Split a block in one direction where the organisms divide most
+     * evenly.
+     * @param node The block.
+     * @param across Whether to split across the rows, into a top and
+     *               a bottom half, rather than into left and right.
+     * @return true if the block could be split.
+     */
+    private boolean splitAtMedian(Node node, boolean across)
+    {
+        int start = across ? node.top : node.left;
+        int end = across ? node.bottom : node.right;
+        int total = load(node);
+        int best = -1;
+        int bestDifference = Integer.MAX_VALUE;
+        // Both halves must be at least MIN_TILE_SIZE cells.
+        for(int line = start + GRAIN; line <= end - MIN_TILE_SIZE; line += GRAIN) {
+            int first = across ? load(node.top, node.left, line, node.right)
+                               : load(node.top, node.left, node.bottom, line);
+            int difference = Math.abs(total - 2 * first);
+            if(difference < bestDifference) {
+                best = line;
+                bestDifference = difference;
+            }
+        }
+        if(best < 0) {
+            return false;
+        }
+        if(across) {
+            node.first = new Node(node.top, node.left, best, node.right);
+            node.second = new Node(best, node.left, node.bottom, node.right);
+        }
+        else {
+            node.first = new Node(node.top, node.left, node.bottom, best);
+            node.second = new Node(node.top, best, node.bottom, node.right);
+        }
+        return true;
+    }
+
+    /**
+     * Add the blocks under a node to a list, in tree order.
+     */
+    private void collect(Node node, List<int[]> blocks)
+    {
+        if(node.first == null) {
+            blocks.add(new int[] { node.top, node.left, node.bottom, node.right });
+        }
+        else {
+            collect(node.first, blocks);
+            collect(node.second, blocks);
+        }
+    }
+
+    /**
+     * Count the animals and plants in each square of the field, and
+     * sum the counts for quick totals over any block.
+     * @param field The current state of the field.
+     */
+    private void countOrganisms(Field field)
+    {
+        int width = field.getWidth();
+        int[] counts = new int[grainRows * grainCols];
+        CellBits animalBits = field.getAnimalOccupancy();
+        CellBits plantBits = field.getPlantOccupancy();
+        for(int i = 0; i < animalBits.wordCount(); i++) {
+            long word = animalBits.word(i) | plantBits.word(i);
+            while(word != 0) {
+                int cell = i * 64 + Long.numberOfTrailingZeros(word);
+                int row = cell / width;
+                int col = cell - row * width;
+                counts[(row / GRAIN) * grainCols + col / GRAIN]++;
+                word &= word - 1;
+            }
+        }
+        int stride = grainCols + 1;
+        for(int row = 0; row < grainRows; row++) {
+            for(int col = 0; col < grainCols; col++) {
+                sums[(row + 1) * stride + col + 1] = counts[row * grainCols + col]
+                    + sums[row * stride + col + 1] + sums[(row + 1) * stride + col]
+                    - sums[row * stride + col];
+            }
+        }
+    }
+
+    /**
+     * @return The number of organisms in a block.
+     */
+    private int load(Node node)
+    {
+        return load(node.top, node.left, node.bottom, node.right);
+    }
+
+    /**
+     * @return The number of organisms between the given rows and columns.
+     */
+    private int load(int top, int left, int bottom, int right)
+    {
+        int stride = grainCols + 1;
+        int r0 = top / GRAIN;
+        int c0 = left / GRAIN;
+        int r1 = (bottom + GRAIN - 1) / GRAIN;
+        int c1 = (right + GRAIN - 1) / GRAIN;
+        return sums[r1 * stride + c1] - sums[r0 * stride + c1]
+               - sums[r1 * stride + c0] + sums[r0 * stride + c0];
+    }
+
+    /**
+     * A block of the field, which may have been split in two.
+     */
+    private static class Node
+    {
+        // The bounds of the block, with bottom and right just past it.
+        final int top, left, bottom, right;
+        // The two halves, if the block has been split.
+        Node first, second;
+
+        Node(int top, int left, int bottom, int right)
+        {
+            this.top = top;
+            this.left = left;
+            this.bottom = bottom;
+            this.right = right;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * A set of cells of a field, one bit per cell: bit (index % 64) of word
+ * (index / 64) is for cell index. A dense set holds every word. A sparse
+ * set, for huge, mostly empty fields, holds its words in pages of
+ * PAGE_WORDS words, allocated when a bit in the page is first set and
+ * released when the set is cleared, so that it costs memory and time
+ * only where there is something. Reading a word of a missing page
+ * gives zero.
+ *
+ * Several threads may set and clear bits of a dense set at once, even
+ * bits in the same word. A sparse set is written by one thread at a
+ * time, like the chunked storage it is used with, since setting a bit
+ * can allocate its page.
+ *
+ * @author Alexander Sukhin
+ * @version 27/02/2025
+ */
+public class CellBits
+{
+    // The number of words in a page of a sparse set: 4096 cells.
+    private static final int PAGE_WORDS = 64;
+    // The number of released pages kept for reuse.
+    private static final int MAX_SPARE_PAGES = 64;
+    // Atomic access to the words of a dense set.
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // The number of words covering the cells.
+    private final int wordCount;
+    // The words of a dense set, or null if the set is sparse.
+    private final long[] words;
+    // The pages of a sparse set, null where no bit has been set since
+    // the set was last cleared; or null if the set is dense.
+    private final long[][] pages;
+    // The indices of the pages allocated.
+    private int[] allocated;
+    private int allocatedCount;
+    // Released pages, all zero, kept for reuse.
+    private final long[][] sparePages;
+    private int spareCount;
+
+    /**
+     * Create an empty set of cells.
+     * @param size The number of cells.
+     * @param sparse true to allocate the words only where bits are set.
+     */
+    public CellBits(int size, boolean sparse)
+    {
+        wordCount = (size + 63) / 64;
+        if(sparse) {
+            words = null;
+            pages = new long[(wordCount + PAGE_WORDS - 1) / PAGE_WORDS][];
+            allocated = new int[16];
+            sparePages = new long[MAX_SPARE_PAGES][];
+        }
+        else {
+            words = new long[wordCount];
+            pages = null;
+            sparePages = null;
+        }
+    }
+
+    /**
+     * @return The number of words covering the cells.
+     */
+    public int wordCount()
+    {
+        return wordCount;
+    }
+
+    /**
+     * Return a word of the set.
+     * @param word The index of the word.
+     * @return The bits of cells word * 64 to word * 64 + 63.
+     */
+    public long word(int word)
+    {
+        if(words != null) {
+            return words[word];
+        }
+        long[] page = pages[word / PAGE_WORDS];
+        return page == null ? 0 : page[word % PAGE_WORDS];
+    }
+
+    /**
+     * @param index The index of a cell.
+     * @return true if the cell's bit is set.
+     */
+    public boolean get(int index)
+    {
+        return (word(index >>> 6) & (1L << index)) != 0;
+    }
+
+    /**
+     * Set the bit of a cell.
+     * @param index The index of the cell.
+     */
+    public void set(int index)
+    {
+        int word = index >>> 6;
+        if(words != null) {
+            WORDS.getAndBitwiseOr(words, word, 1L << index);
+        }
+        else {
+            long[] page = pages[word / PAGE_WORDS];
+            if(page == null) {
+                page = allocatePage(word / PAGE_WORDS);
+            }
+            page[word % PAGE_WORDS] |= 1L << index;
+        }
+    }
+
+    /**
+     * Clear the bit of a cell.
+     * @param index The index of the cell.
+     */
+    public void clear(int index)
+    {
+        int word = index >>> 6;
+        if(words != null) {
+            WORDS.getAndBitwiseAnd(words, word, ~(1L << index));
+        }
+        else {
+            long[] page = pages[word / PAGE_WORDS];
+            if(page != null) {
+                page[word % PAGE_WORDS] &= ~(1L << index);
+            }
+        }
+    }
+
+    /**
+     * Clear the set, given the cells whose bits may be set. Only the
+     * words of those cells are cleared in a dense set, and a sparse set
+     * releases its pages, so the work is in proportion to the cells
+     * given rather than to the whole field.
+     * @param cells The indices of the cells; every bit set must be
+     *              that of one of them.
+     * @param count The number of cells given.
+     */
+    public void clearCells(int[] cells, int count)
+    {
+        if(words != null) {
+            for(int i = 0; i < count; i++) {
+                words[cells[i] >>> 6] = 0;
+            }
+        }
+        else {
+            releasePages();
+        }
+    }
+
+    /**
+     * Clear every bit of the set.
+     */
+    public void clearAll()
+    {
+        if(words != null) {
+            Arrays.fill(words, 0);
+        }
+        else {
+            releasePages();
+        }
+    }
+
+    /**
+     * Find the first cell at or after the given one whose bit is set.
+     * @param from The index of the cell to start looking from.
+     * @return The index of the cell, or -1 if there is none.
+     */
+    public int nextSetBit(int from)
+    {
+        return nextSetBit(from, wordCount * 64);
+    }
+
+    /**
+     * Find the first cell in a range whose bit is set. Missing pages of
+     * a sparse set are skipped whole.
+     * @param from The index of the first cell of the range.
+     * @param to The index of the cell after the range.
+     * @return The index of the cell, or -1 if there is none.
+     */
+    public int nextSetBit(int from, int to)
+    {
+        int end = Math.min(wordCount, (to + 63) >>> 6);
+        int word = from >>> 6;
+        if(word >= end) {
+            return -1;
+        }
+        long bits = word(word) & (-1L << from);
+        while(bits == 0) {
+            word++;
+            if(pages != null) {
+                while(word < end && pages[word / PAGE_WORDS] == null) {
+                    word = (word / PAGE_WORDS + 1) * PAGE_WORDS;
+                }
+            }
+            if(word >= end) {
+                return -1;
+            }
+            bits = word(word);
+        }
+        int cell = word * 64 + Long.numberOfTrailingZeros(bits);
+        return cell < to ? cell : -1;
+    }
+
+    /**
+     * Set the bits of every cell set in another set of the same size.
+     * Only one thread may be writing either set.
+     * @param other The other set.
+     */
+    public void or(CellBits other)
+    {
+        if(words != null && other.words != null) {
+            for(int word = 0; word < wordCount; word++) {
+                words[word] |= other.words[word];
+            }
+        }
+        else {
+            for(int cell = other.nextSetBit(0); cell >= 0; cell = other.nextSetBit(cell + 1)) {
+                set(cell);
+            }
+        }
+    }
+
+    /**
+     * @return A new set holding the same cells, dense or sparse as
+     *         this one is.
+     */
+    public CellBits copy()
+    {
+        CellBits copy = new CellBits(wordCount * 64, words == null);
+        if(words != null) {
+            System.arraycopy(words, 0, copy.words, 0, wordCount);
+        }
+        else {
+            for(int i = 0; i < allocatedCount; i++) {
+                int index = allocated[i];
+                System.arraycopy(pages[index], 0, copy.allocatePage(index), 0, PAGE_WORDS);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Allocate a page of a sparse set, reusing a released one if there
+     * is one.
+     * @param index The index of the page.
+     * @return The page, all zero.
+     */
+    private long[] allocatePage(int index)
+    {
+        long[] page = spareCount > 0 ? sparePages[--spareCount] : new long[PAGE_WORDS];
+        pages[index] = page;
+        if(allocatedCount == allocated.length) {
+            allocated = Arrays.copyOf(allocated, allocatedCount * 2);
+        }
+        allocated[allocatedCount++] = index;
+        return page;
+    }
+
+    /**
+     * Release every page of a sparse set, keeping a few for reuse.
+     */
+    private void releasePages()
+    {
+        for(int i = 0; i < allocatedCount; i++) {
+            int index = allocated[i];
+            if(spareCount < MAX_SPARE_PAGES) {
+                Arrays.fill(pages[index], 0);
+                sparePages[spareCount++] = pages[index];
+            }
+            pages[index] = null;
+        }
+        allocatedCount = 0;
+    }
+}
@@ -0,0 +1,76 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * The test class CellBitsTest. A sparse set of cells must behave as a
+ * dense one, while holding pages only where bits are set.
+ *
+ * @author  Alexander Sukhin
+ * @version 27/02/2025
+ */
+public class CellBitsTest
+{
+    // Enough cells for many pages.
+    private static final int SIZE = 100000;
+
+    @Test
+    public void sparseMatchesDense()
+    {
+        CellBits sparse = new CellBits(SIZE, true);
+        CellBits dense = new CellBits(SIZE, false);
+        int[] cells = { 3, 64, 4095, 4096, 70000, SIZE - 1 };
+        for(int cell : cells) {
+            sparse.set(cell);
+            dense.set(cell);
+        }
+        sparse.clear(64);
+        dense.clear(64);
+        for(int word = 0; word < dense.wordCount(); word++) {
+            assertEquals(dense.word(word), sparse.word(word));
+        }
+        assertTrue(sparse.get(4096));
+        assertFalse(sparse.get(64));
+        assertFalse(sparse.get(50000));
+    }
+
+    @Test
+    public void nextSetBitSkipsEmptyPages()
+    {
+        CellBits bits = new CellBits(SIZE, true);
+        bits.set(10);
+        bits.set(70000);
+        assertEquals(10, bits.nextSetBit(0));
+        assertEquals(70000, bits.nextSetBit(11));
+        assertEquals(-1, bits.nextSetBit(11, 70000));
+        assertEquals(-1, bits.nextSetBit(70001));
+    }
+
+    @Test
+    public void clearCellsEmptiesTheSet()
+    {
+        CellBits bits = new CellBits(SIZE, true);
+        int[] cells = { 5, 9000, 80000 };
+        for(int cell : cells) {
+            bits.set(cell);
+        }
+        bits.clearCells(cells, cells.length);
+        assertEquals(-1, bits.nextSetBit(0));
+        bits.set(9001);
+        assertEquals(9001, bits.nextSetBit(0));
+    }
+
+    @Test
+    public void copyAndOr()
+    {
+        CellBits bits = new CellBits(SIZE, true);
+        bits.set(7);
+        CellBits copy = bits.copy();
+        CellBits other = new CellBits(SIZE, false);
+        other.set(60000);
+        copy.or(other);
+        assertEquals(7, copy.nextSetBit(0));
+        assertEquals(60000, copy.nextSetBit(8));
+        assertEquals(-1, bits.nextSetBit(8));
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * The storage behind a Field: the animal and the plant held in each
+ * cell, addressed by cell index (row * width + col). Field keeps the
+ * registries, counts and occupancy bits itself, so a storage only has
+ * to remember what is in each cell.
+ *
+ * A storage is written by one thread at a time. Only a storage whose
+ * StorageType supports concurrent writes may be written by several
+ * threads at once, and then only at different cells.
+ *
+ * @author Alexander Sukhin
+ * @version 22/02/2025
+ */
+public interface CellStorage
+{
+    /**
+     * @param cell The index of the cell.
+     * @return The animal in the cell, or null if there is none.
+     */
+    Animal getAnimal(int cell);
+
+    /**
+     * @param cell The index of the cell.
+     * @return The plant in the cell, or null if there is none.
+     */
+    Plant getPlant(int cell);
+
+    /**
+     * Put an animal in a cell, replacing any animal already there.
+     * @param cell The index of the cell.
+     * @param animal The animal, or null to empty the animal slot.
+     */
+    void setAnimal(int cell, Animal animal);
+
+    /**
+     * Put a plant in a cell, replacing any plant already there.
+     * @param cell The index of the cell.
+     * @param plant The plant, or null to empty the plant slot.
+     */
+    void setPlant(int cell, Plant plant);
+
+    /**
+     * Remove the animal and the plant from a cell. Clearing an
+     * empty cell has no effect.
+     * @param cell The index of the cell.
+     */
+    void clearCell(int cell);
+}
@@ -0,0 +1,433 @@
+import java.util.Arrays;
+
+/**
+ * Cell storage for huge, mostly empty fields. The field is divided
+ * into square tiles, and a tile is only allocated once something is
+ * placed in it. A tile holding few organisms keeps them in a small
+ * hash table keyed by the cell's position within the tile; once it
+ * fills up it switches to flat arrays, and switches back when it
+ * empties again. Tiles that become empty are released, and a few are
+ * kept for reuse so that a field which is cleared every step does not
+ * keep allocating new ones. Only one thread may write at a time, since
+ * writing a cell can allocate or release its tile.
+ *
+ * @author Alexander Sukhin
+ * @version 22/02/2025
+ */
+public class ChunkedStorage implements CellStorage
+{
+    // Tiles are TILE_SIZE cells on a side.
+    private static final int TILE_SHIFT = 6;
+    private static final int TILE_SIZE = 1 << TILE_SHIFT;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+    private static final int TILE_CELLS = TILE_SIZE * TILE_SIZE;
+    // A sparse tile with more entries than this becomes dense.
+    private static final int DENSE_THRESHOLD = 512;
+    // A dense tile with fewer entries than this becomes sparse again.
+    private static final int SPARSE_THRESHOLD = 128;
+    // The number of released tiles kept for reuse.
+    private static final int MAX_SPARE_TILES = 16;
+
+    // The width of the field.
+    private final int width;
+    // The number of tiles across the field.
+    private final int tilesAcross;
+    // The tiles, row by row; null where a tile has never been needed.
+    private final Tile[] tiles;
+    // Released tiles, kept for reuse.
+    private final Tile[] spareTiles = new Tile[MAX_SPARE_TILES];
+    // The number of spare tiles.
+    private int spareCount;
+
+    /**
+     * Create storage for a field of the given size.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public ChunkedStorage(int depth, int width)
+    {
+        this.width = width;
+        tilesAcross = (width + TILE_MASK) >> TILE_SHIFT;
+        int tilesDown = (depth + TILE_MASK) >> TILE_SHIFT;
+        tiles = new Tile[tilesAcross * tilesDown];
+    }
+
+    public Animal getAnimal(int cell)
+    {
+        Tile tile = tiles[tileIndex(cell)];
+        return tile == null ? null : tile.getAnimal(localIndex(cell));
+    }
+
+    public Plant getPlant(int cell)
+    {
+        Tile tile = tiles[tileIndex(cell)];
+        return tile == null ? null : tile.getPlant(localIndex(cell));
+    }
+
+    public void setAnimal(int cell, Animal animal)
+    {
+        int index = tileIndex(cell);
+        Tile tile = tiles[index];
+        if(tile == null) {
+            if(animal == null) {
+                return;
+            }
+            tile = tiles[index] = newTile();
+        }
+        tile.setAnimal(localIndex(cell), animal);
+        releaseIfEmpty(index);
+    }
+
+    public void setPlant(int cell, Plant plant)
+    {
+        int index = tileIndex(cell);
+        Tile tile = tiles[index];
+        if(tile == null) {
+            if(plant == null) {
+                return;
+            }
+            tile = tiles[index] = newTile();
+        }
+        tile.setPlant(localIndex(cell), plant);
+        releaseIfEmpty(index);
+    }
+
+    public void clearCell(int cell)
+    {
+        int index = tileIndex(cell);
+        Tile tile = tiles[index];
+        if(tile != null) {
+            tile.remove(localIndex(cell));
+            releaseIfEmpty(index);
+        }
+    }
+
+    /**
+     * @return The number of tiles currently allocated.
+     */
+    public int getTileCount()
+    {
+        int count = 0;
+        for(Tile tile : tiles) {
+            if(tile != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param cell The index of a cell in the field.
+     * @return The index of the tile containing the cell.
+     */
+    private int tileIndex(int cell)
+    {
+        int row = cell / width;
+        int col = cell - row * width;
+        return (row >> TILE_SHIFT) * tilesAcross + (col >> TILE_SHIFT);
+    }
+
+    /**
+     * @param cell The index of a cell in the field.
+     * @return The index of the cell within its tile.
+     */
+    private int localIndex(int cell)
+    {
+        int row = cell / width;
+        int col = cell - row * width;
+        return ((row & TILE_MASK) << TILE_SHIFT) | (col & TILE_MASK);
+    }
+
+    /**
+     * @return An empty tile, reused if one is spare.
+     */
+    private Tile newTile()
+    {
+        if(spareCount > 0) {
+            Tile tile = spareTiles[--spareCount];
+            spareTiles[spareCount] = null;
+            return tile;
+        }
+        return new Tile();
+    }
+
+    /**
+     * Release a tile if nothing is left in it.
+     * @param index The index of the tile.
+     */
+    private void releaseIfEmpty(int index)
+    {
+        Tile tile = tiles[index];
+        if(tile.size == 0) {
+            tiles[index] = null;
+            if(spareCount < MAX_SPARE_TILES) {
+                tile.reset();
+                spareTiles[spareCount++] = tile;
+            }
+        }
+    }
+
+    /**
+     * The contents of one tile. While sparse, the occupied cells are
+     * kept in an open-addressing hash table with linear probing, keyed
+     * by the cell's index within the tile. While dense, the animals
+     * and plants are held in arrays with one entry per cell.
+     */
+    private static class Tile
+    {
+        // The key marking an unused hash table slot.
+        private static final short NO_KEY = -1;
+        // The initial capacity of the hash table.
+        private static final int INITIAL_CAPACITY = 16;
+
+        // The cell key in each hash table slot; null while dense.
+        private short[] keys;
+        // The animals, by slot while sparse and by cell while dense.
+        private Animal[] animals;
+        // The plants, by slot while sparse and by cell while dense.
+        private Plant[] plants;
+        // The number of cells holding an animal or a plant.
+        private int size;
+
+        Tile()
+        {
+            makeSparse(INITIAL_CAPACITY);
+        }
+
+        Animal getAnimal(int local)
+        {
+            if(keys == null) {
+                return animals[local];
+            }
+            int slot = find(local);
+            return slot < 0 ? null : animals[slot];
+        }
+
+        Plant getPlant(int local)
+        {
+            if(keys == null) {
+                return plants[local];
+            }
+            int slot = find(local);
+            return slot < 0 ? null : plants[slot];
+        }
+
+        void setAnimal(int local, Animal animal)
+        {
+            int slot = slotFor(local, animal != null);
+            if(slot >= 0) {
+                animals[slot] = animal;
+                afterChange(local, slot);
+            }
+        }
+
+        void setPlant(int local, Plant plant)
+        {
+            int slot = slotFor(local, plant != null);
+            if(slot >= 0) {
+                plants[slot] = plant;
+                afterChange(local, slot);
+            }
+        }
+
+        void remove(int local)
+        {
+            int slot = slotFor(local, false);
+            if(slot >= 0) {
+                animals[slot] = null;
+                plants[slot] = null;
+                afterChange(local, slot);
+            }
+        }
+
+        /**
+         * Empty the tile ready for reuse.
+         */
+        void reset()
+        {
+            if(keys == null || keys.length != INITIAL_CAPACITY) {
+                makeSparse(INITIAL_CAPACITY);
+            }
+            else {
+                Arrays.fill(keys, NO_KEY);
+                Arrays.fill(animals, null);
+                Arrays.fill(plants, null);
+            }
+            size = 0;
+        }
+
+        /**
+         * Find the array slot for a cell about to be written. An empty
+         * cell is only given an entry if something is being put in it.
+         * @param local The index of the cell within the tile.
+         * @param insert Whether to create an entry if there is none.
+         * @return The slot, or -1 if the cell has no entry.
+         */
+        private int slotFor(int local, boolean insert)
+        {
+            if(keys == null) {
+                if(animals[local] == null && plants[local] == null) {
+                    if(!insert) {
+                        return -1;
+                    }
+                    size++;
+                }
+                return local;
+            }
+            int slot = find(local);
+            if(slot >= 0 || !insert) {
+                return slot;
+            }
+            if((size + 1) * 2 > keys.length) {
+                if(size + 1 > DENSE_THRESHOLD) {
+                    makeDense();
+                    size++;
+                    return local;
+                }
+                rehash(keys.length * 2);
+            }
+            slot = local & (keys.length - 1);
+            while(keys[slot] != NO_KEY) {
+                slot = (slot + 1) & (keys.length - 1);
+            }
+            keys[slot] = (short) local;
+            size++;
+            return slot;
+        }
+
+        /**
+         * Drop the entry for a cell if it has become empty, and
+         * switch back to sparse storage once few cells are left.
+         * @param local The index of the cell within the tile.
+         * @param slot The slot that was written.
+         */
+        private void afterChange(int local, int slot)
+        {
+            if(animals[slot] != null || plants[slot] != null) {
+                return;
+            }
+            if(keys == null) {
+                size--;
+                if(size < SPARSE_THRESHOLD) {
+                    makeSparseFromDense();
+                }
+            }
+            else {
+                delete(slot);
+            }
+        }
+
+        /**
+         * @param local The index of a cell within the tile.
+         * @return The hash table slot holding the cell, or -1.
+         */
+        private int find(int local)
+        {
+            int mask = keys.length - 1;
+            int slot = local & mask;
+            short key;
+            while((key = keys[slot]) != NO_KEY) {
+                if(key == local) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * Remove a hash table entry, shifting later entries of the
+         * same probe run back so that no tombstones are needed.
+         * @param slot The slot to empty.
+         */
+        private void delete(int slot)
+        {
+            int mask = keys.length - 1;
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while(keys[next] != NO_KEY) {
+                int home = keys[next] & mask;
+                // Move the entry back if its home is not between the
+                // hole and its current slot.
+                if(((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    animals[hole] = animals[next];
+                    plants[hole] = plants[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[hole] = NO_KEY;
+            animals[hole] = null;
+            plants[hole] = null;
+            size--;
+        }
+
+        private void makeSparse(int capacity)
+        {
+            keys = new short[capacity];
+            Arrays.fill(keys, NO_KEY);
+            animals = new Animal[capacity];
+            plants = new Plant[capacity];
+        }
+
+        private void rehash(int capacity)
+        {
+            short[] oldKeys = keys;
+            Animal[] oldAnimals = animals;
+            Plant[] oldPlants = plants;
+            makeSparse(capacity);
+            for(int i = 0; i < oldKeys.length; i++) {
+                if(oldKeys[i] != NO_KEY) {
+                    insert(oldKeys[i], oldAnimals[i], oldPlants[i]);
+                }
+            }
+        }
+
+        private void makeDense()
+        {
+            Animal[] denseAnimals = new Animal[TILE_CELLS];
+            Plant[] densePlants = new Plant[TILE_CELLS];
+            for(int i = 0; i < keys.length; i++) {
+                if(keys[i] != NO_KEY) {
+                    denseAnimals[keys[i]] = animals[i];
+                    densePlants[keys[i]] = plants[i];
+                }
+            }
+            keys = null;
+            animals = denseAnimals;
+            plants = densePlants;
+        }
+
+        private void makeSparseFromDense()
+        {
+            Animal[] denseAnimals = animals;
+            Plant[] densePlants = plants;
+            int capacity = INITIAL_CAPACITY;
+            while(capacity < size * 2) {
+                capacity *= 2;
+            }
+            makeSparse(capacity);
+            for(int local = 0; local < TILE_CELLS; local++) {
+                if(denseAnimals[local] != null || densePlants[local] != null) {
+                    insert(local, denseAnimals[local], densePlants[local]);
+                }
+            }
+        }
+
+        /**
+         * Insert an entry known not to be present, without counting it.
+         */
+        private void insert(int local, Animal animal, Plant plant)
+        {
+            int mask = keys.length - 1;
+            int slot = local & mask;
+            while(keys[slot] != NO_KEY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = (short) local;
+            animals[slot] = animal;
+            plants[slot] = plant;
+        }
+    }
+}
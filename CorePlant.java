@@ -11,64 +11,138 @@ import java.util.List;
  */
 public class CorePlant extends Plant
 {
-
-    // The current growth state of the plant.
-    private int growthState;
+    // The wake-up day of a plant with nothing due until it loses its
+    // last leaf.
+    public static final long NEVER = Long.MAX_VALUE;
+
+    // The day on which the growth state was last zero. The growth state
+    // goes up by one every day step, so it is worked out from the day
+    // when needed rather than updated at every step.
+    private long sproutDay;
+    // The day the plant is next due to wake, or NEVER.
+    private long wakeDay;
     // The current phase of the plant.
     private int phase;
     // The leaf cells extending from the plant.
     private List<LeafCell> leafCells;
-    // The ages at which the plant evolves into different phases.
-    private static final int PHASE_2_AGE = 10;
-    private static final int PHASE_3_AGE = 30;
+    // The ages at which this plant evolves into different phases.
+    private final int phase2Age;
+    private final int phase3Age;
 
     /**
-     * Constructor for objects of class Plant
+     * Constructor for objects of class Plant, using the default
+     * parameters.
      */
     public CorePlant(Location location)
+    {
+        this(Parameters.DEFAULTS, location);
+    }
+
+    /**
+     * Constructor for objects of class Plant
+     * @param parameters The parameters of the simulation.
+     * @param location The plant's location.
+     */
+    public CorePlant(Parameters parameters, Location location)
     {
         super(location);
-        growthState = 0;
+        phase2Age = parameters.getInt(Parameter.PHASE_2_AGE);
+        phase3Age = parameters.getInt(Parameter.PHASE_3_AGE);
+        sproutDay = 0;
+        wakeDay = NEVER;
         leafCells = new ArrayList<>();
         phase = 1;
     }
 
+    /**
+     * @return The species of this plant.
+     */
+    public Species getSpecies()
+    {
+        return Species.CORE_PLANT;
+    }
+
     /** 
-     * This is what the plant does most of the time. It increments
-     * the age and goes to next phase when plant is old enough.
-     * @param currentField The field currently occupied.
+     * This is what the plant does on a day it is due to wake. It
+     * regrows from the start if prey have eaten the whole plant, and
+     * goes to the next phase when the plant is old enough.
+     * @param day The number of day steps so far, counting this one.
      * @param nextFieldState The updated field.
+     * @return The day the plant is next due to wake, or NEVER.
      */
-    public void act(Field currentField, Field nextFieldState, Time time)
+    public long wake(long day, Field nextFieldState)
     {
-        if (time == Time.DAY) {
-            // We reset the plant whenever there are no more
-            // leaf cells, i.e. prey ate the entire plant.
-            if (growthState >= 10 && leafCells.isEmpty()) {
-                resetPlant();
-            }
+        // We reset the plant whenever there are no more
+        // leaf cells, i.e. prey ate the entire plant.
+        if (day - 1 - sproutDay >= phase2Age && leafCells.isEmpty()) {
+            resetPlant(day - 1);
+        }
 
-            grow();
+        long growthState = day - sproutDay;
+        if (growthState == phase2Age) {
+            changePhase(2);
+            handleGrowth(nextFieldState);
+        } else if (growthState == phase3Age) {
+            changePhase(3);
+            handleGrowth(nextFieldState);
+        }
+        return nextWakeDay(day);
+    }
 
-            if (growthState == PHASE_2_AGE) {
-                changePhase(2);
-                handleGrowth(currentField, nextFieldState);
-            } else if (growthState == PHASE_3_AGE) {
-                changePhase(3);
-                handleGrowth(currentField, nextFieldState);
-            }
+    /**
+     * Work out when the plant next has something to do.
+     * @param day The number of day steps so far.
+     * @return The day the plant is next due to wake, or NEVER if
+     *         nothing is due until it loses its last leaf.
+     */
+    public long nextWakeDay(long day)
+    {
+        long growthState = day - sproutDay;
+        long next = NEVER;
+        if (growthState < phase2Age) {
+            next = sproutDay + phase2Age;
+        } else if (leafCells.isEmpty()) {
+            next = day + 1;
         }
+        if (growthState < phase3Age) {
+            next = Math.min(next, sproutDay + phase3Age);
+        }
+        return next;
+    }
+
+    /**
+     * @return true if the plant has no leaf cells left.
+     */
+    public boolean isBare()
+    {
+        return leafCells.isEmpty();
+    }
+
+    /**
+     * @return The day the plant is next due to wake, or NEVER.
+     */
+    long getWakeDay()
+    {
+        return wakeDay;
+    }
 
-        nextFieldState.placePlant(this, getLocation());
+    /**
+     * Set the day the plant is next due to wake.
+     * @param wakeDay The day, or NEVER.
+     */
+    void setWakeDay(long wakeDay)
+    {
+        this.wakeDay = wakeDay;
     }
 
     /**
      * This method resets the plant back to the first phase
      * and resets the age of the plant, allowing us to regrow.
+     * @param day The day from which the plant grows again.
      */
-    private void resetPlant()
+    private void resetPlant(long day)
     {
-        growthState = 0;
+        sproutDay = day;
         phase = 1;
     }
 
@@ -76,15 +150,14 @@ public class CorePlant extends Plant
      * This method handles the growth of the plant when the plant
      * goes to the next phase. It updates the plant to a 2x2 area
      * or a 3x3 area depending on the current phase.
-     * @param currentField The field currently occupied.
      * @param nextFieldState The updated field.
      */
-    private void handleGrowth(Field currentField, Field nextFieldState)
+    private void handleGrowth(Field nextFieldState)
     {
         int row = getLocation().row();
         int col = getLocation().col();
-        int width = currentField.getWidth();
-        int depth = currentField.getDepth();
+        int width = nextFieldState.getWidth();
+        int depth = nextFieldState.getDepth();
 
         int minOffSet = (phase == 2) ? 0 : -1;
 
@@ -96,7 +169,7 @@ public class CorePlant extends Plant
                 int nextCol = col + coffset;
 
                 if (nextRow >= 0 && nextRow < depth && nextCol >= 0 && nextCol < width && (roffset != 0 || coffset != 0)) {
-                    Location newLocation = new Location(nextRow, nextCol);
+                    Location newLocation = nextFieldState.getLocation(nextRow, nextCol);
                     addLeafCell(newLocation, nextFieldState);
                 }
             }
@@ -111,14 +184,6 @@ public class CorePlant extends Plant
         leafCells.remove(leafCell);
     }
 
-    /**
-     * Increase the age.
-     */
-    private void grow()
-    {
-        growthState++;
-    }
-
     /**
      * Changes the phase of the plant.
      * @param phase The phase which the plant must be updated to.
@@ -49,6 +49,14 @@ public class Counter
         count++;
     }
     
+    /**
+     * Decrement the current count by one.
+     */
+    public void decrement()
+    {
+        count--;
+    }
+    
     /**
      * Reset the current count to zero.
      */
@@ -0,0 +1,117 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the steps of a simulation and schedules the deaths of its
+ * animals from old age and starvation. Rather than every animal
+ * counting its age and hunger at every step, each animal records the
+ * step it was born and the step it last ate, and is put on a timer
+ * wheel for the step it is due to die. Eating does not touch the
+ * wheel: when an animal comes due and turns out to have eaten since it
+ * was scheduled, it is simply put back for its new step. Rescheduling
+ * after a meal is therefore constant time amortised, not at the meal
+ * itself: an animal is put back at most once each time it comes due,
+ * however often it has eaten since. Nor does dying of other causes:
+ * animals that are eaten, overcrowded or killed by infection are
+ * dropped from the wheel when it moves them down a ring or they come
+ * due. The work done at a step is therefore in proportion to the
+ * animals that come due, not to the number of animals.
+ *
+ * A schedule belongs to the current state of a field and is handed on
+ * to the next state at each step. A field without one, such as a newly
+ * populated field, is given a schedule starting at step zero.
+ *
+ * @author Aryan Sanvee Vijayan
+ * @version 27/02/2025
+ */
+public class DeathSchedule
+{
+    // The number of rings of the wheel: enough for any lifespan.
+    private static final int RINGS = 3;
+
+    // The animals, by the step they are due to die.
+    private final HierarchicalTimerWheel<Animal> wheel = new HierarchicalTimerWheel<>(RINGS, 0);
+    // The number of steps taken.
+    private long step;
+    // The animals that have come due at the current step.
+    private final List<Animal> due = new ArrayList<>();
+    // The animals marked to die at the current step.
+    private final List<Animal> dying = new ArrayList<>();
+
+    /**
+     * Create a schedule for the animals of a field.
+     * @param field The field.
+     */
+    private DeathSchedule(Field field)
+    {
+        for(Animal animal : field.getAnimals()) {
+            animal.attach(this);
+        }
+    }
+
+    /**
+     * Move on to the next step, marking the animals due to die in it,
+     * and hand the current state's schedule on to the next.
+     * @param field The current state of the field.
+     * @param nextFieldState The new state being built.
+     */
+    public static void step(Field field, Field nextFieldState)
+    {
+        DeathSchedule schedule = field.getDeathSchedule();
+        if(schedule == null) {
+            schedule = new DeathSchedule(field);
+        }
+        schedule.advance();
+        nextFieldState.setDeathSchedule(schedule);
+    }
+
+    /**
+     * @return The number of steps taken, counting the current one.
+     */
+    public long getStep()
+    {
+        return step;
+    }
+
+    /**
+     * Return the animals marked to die of old age or hunger at the
+     * current step. The list is the schedule's own and must not be
+     * modified.
+     * @return The dying animals.
+     */
+    List<Animal> getDying()
+    {
+        return dying;
+    }
+
+    /**
+     * Schedule the death of an animal. Animals are added as they are
+     * born, which may be on several threads at once.
+     * @param animal The animal.
+     */
+    synchronized void add(Animal animal)
+    {
+        wheel.schedule(animal, Math.max(animal.getDeathStep(), step + 1));
+    }
+
+    /**
+     * Move on to the next step and mark the animals due to die in it.
+     */
+    private void advance()
+    {
+        dying.clear();
+        step = wheel.poll(due, Animal::isAlive);
+        for(Animal animal : due) {
+            long deathStep = animal.getDeathStep();
+            if(deathStep > step) {
+                // It has eaten since it was scheduled.
+                wheel.schedule(animal, deathStep);
+            }
+            else {
+                animal.setDying();
+                dying.add(animal);
+            }
+        }
+        due.clear();
+    }
+}
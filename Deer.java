@@ -1,4 +1,4 @@
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.List;
 
 /**
@@ -10,35 +10,48 @@ import java.util.List;
  */
 public class Deer extends Prey
 {
-    // Characteristics shared by all deers (class variables).
-    // The age at which a deer can start to breed.
-    private static final int BREEDING_AGE = 15;
-    // The age to which a deer can live.
-    private static final int MAX_AGE = 175;
-    // The likelihood of a deer breeding.
-    private static final double BREEDING_PROBABILITY = 0.7;
-    // The maximum number of births.
-    private static final int MAX_LITTER_SIZE = 3;
-    
+    /**
+     * Create a new deer. A deer may be created with age
+     * zero (a new born) or with a random age.
+     * The default parameters are used.
+     * 
+     * @param randomAge If true, the deer will have a random age.
+     * @param location The location within the field.
+     * @param random The animal's own stream of random numbers.
+     */
+    public Deer(boolean randomAge, Location location, SplittableRandom random)
+    {
+        this(Parameters.DEFAULTS, randomAge, location, random);
+    }
 
     /**
      * Create a new deer. A deer may be created with age
      * zero (a new born) or with a random age.
      * 
+     * @param parameters The parameters of the simulation.
      * @param randomAge If true, the deer will have a random age.
      * @param location The location within the field.
+     * @param random The animal's own stream of random numbers.
      */
-    public Deer(boolean randomAge, Location location)
+    public Deer(Parameters parameters, boolean randomAge, Location location, SplittableRandom random)
     {
-        super(location);
+        super(parameters, location, random);
         if(randomAge) {
-            setAge(randInt(MAX_AGE));
+            setAge(randInt(getParameters().getInt(Parameter.DEER_MAX_AGE)));
         }
         else {
             setAge(0);
         }
     }
     
+    /**
+     * @return The species of this deer.
+     */
+    public Species getSpecies()
+    {
+        return Species.DEER;
+    }
+
     @Override
     public String toString() {
         return "Deer{" +
@@ -49,13 +62,11 @@ public class Deer extends Prey
     }
 
     /**
-     * Check if the deer is too old to live.
+     * @return The age to which a deer can live.
      */
-    protected void checkIfTooOld()
+    protected int getMaxAge()
     {
-        if(getAge() > MAX_AGE) {
-            setDead();
-        }
+        return getParameters().getInt(Parameter.DEER_MAX_AGE);
     }
 
     /**
@@ -65,7 +76,8 @@ public class Deer extends Prey
      */
     protected boolean breedSuccess()
     {
-        return getAge() >= BREEDING_AGE && randDouble() <= BREEDING_PROBABILITY;
+        return getAge() >= getParameters().getInt(Parameter.DEER_BREEDING_AGE)
+            && randDouble() <= getParameters().get(Parameter.DEER_BREEDING_PROBABILITY);
     }
     
     /**
@@ -74,7 +86,7 @@ public class Deer extends Prey
      * @return The offspring.
      */
     protected Animal offspring(Location loc) {
-        Deer young = new Deer(false,loc);
+        Deer young = new Deer(getParameters(), false, loc, getRandom().split());
         return young;
     }
     
@@ -83,7 +95,7 @@ public class Deer extends Prey
      * @return Number of offspring.
      */
     protected int birthNumber() {
-        return randInt(MAX_LITTER_SIZE) + 1;
+        return randInt(getParameters().getInt(Parameter.DEER_MAX_LITTER_SIZE)) + 1;
     }
     
     /**
@@ -95,7 +107,7 @@ public class Deer extends Prey
         if (time == Time.DAY) {
             return true;
         }
-        else if ((time == Time.NIGHT) && (randDouble() < 0.6)) {
+        else if ((time == Time.NIGHT) && (randDouble() < getParameters().get(Parameter.DEER_NIGHT_MOVE_PROBABILITY))) {
             return true;
         }
         else {
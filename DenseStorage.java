@@ -0,0 +1,52 @@
+/**
+ * Cell storage in two flat arrays, one entry per cell. Every lookup is
+ * a single array load, at the cost of memory for every cell whether
+ * it is occupied or not. Several threads may write to different cells
+ * at once, since each cell is an array element of its own.
+ *
+ * @author Alexander Sukhin
+ * @version 22/02/2025
+ */
+public class DenseStorage implements CellStorage
+{
+    // The animal in each cell, indexed by row * width + col.
+    private final Animal[] animalLayer;
+    // The plant in each cell, indexed by row * width + col.
+    private final Plant[] plantLayer;
+
+    /**
+     * Create storage for the given number of cells.
+     * @param size The number of cells.
+     */
+    public DenseStorage(int size)
+    {
+        animalLayer = new Animal[size];
+        plantLayer = new Plant[size];
+    }
+
+    public Animal getAnimal(int cell)
+    {
+        return animalLayer[cell];
+    }
+
+    public Plant getPlant(int cell)
+    {
+        return plantLayer[cell];
+    }
+
+    public void setAnimal(int cell, Animal animal)
+    {
+        animalLayer[cell] = animal;
+    }
+
+    public void setPlant(int cell, Plant plant)
+    {
+        plantLayer[cell] = plant;
+    }
+
+    public void clearCell(int cell)
+    {
+        animalLayer[cell] = null;
+        plantLayer[cell] = null;
+    }
+}
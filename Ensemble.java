@@ -0,0 +1,141 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many replicas of the same scenario, each from its own seed, and
+ * collects the populations of every replica at every step. Each
+ * replica is an independent Simulator without a view, with its own
+ * random number stream and fields, so replicas share nothing and run
+ * side by side on a fixed number of threads. A replica's series
+ * depends only on its seed, not on the number of threads.
+ *
+ * @author Alexander Sukhin
+ * @version 27/02/2025
+ */
+public class Ensemble
+{
+    // The dimensions of the field of each replica.
+    private final int depth, width;
+    // The number of steps each replica runs for.
+    private final int steps;
+    // The number of replicas run at once.
+    private final int threads;
+    // The parameters of every replica.
+    private final Parameters parameters;
+
+    /**
+     * Create an ensemble using one thread for each available core.
+     * @param depth The depth of each replica's field.
+     * @param width The width of each replica's field.
+     * @param steps The number of steps each replica runs for.
+     */
+    public Ensemble(int depth, int width, int steps)
+    {
+        this(depth, width, steps, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create an ensemble.
+     * @param depth The depth of each replica's field.
+     * @param width The width of each replica's field.
+     * @param steps The number of steps each replica runs for.
+     * @param threads The number of replicas to run at once.
+     */
+    public Ensemble(int depth, int width, int steps, int threads)
+    {
+        this(depth, width, steps, threads, Parameters.DEFAULTS);
+    }
+
+    /**
+     * Create an ensemble whose replicas use the given parameters.
+     * @param depth The depth of each replica's field.
+     * @param width The width of each replica's field.
+     * @param steps The number of steps each replica runs for.
+     * @param threads The number of replicas to run at once.
+     * @param parameters The parameters of every replica.
+     */
+    public Ensemble(int depth, int width, int steps, int threads, Parameters parameters)
+    {
+        if(steps < 0) {
+            throw new IllegalArgumentException("Negative number of steps: " + steps);
+        }
+        if(threads < 1) {
+            throw new IllegalArgumentException("An ensemble needs at least one thread: " + threads);
+        }
+        this.depth = depth;
+        this.width = width;
+        this.steps = steps;
+        this.threads = threads;
+        this.parameters = parameters;
+    }
+
+    /**
+     * Run a replica for each of a number of consecutive seeds.
+     * @param firstSeed The seed of the first replica.
+     * @param replicas The number of replicas.
+     * @return The series of each replica, in seed order.
+     */
+    public List<PopulationSeries> run(long firstSeed, int replicas)
+    {
+        long[] seeds = new long[replicas];
+        for(int i = 0; i < replicas; i++) {
+            seeds[i] = firstSeed + i;
+        }
+        return run(seeds);
+    }
+
+    /**
+     * Run a replica for each of the given seeds.
+     * @param seeds The seeds.
+     * @return The series of each replica, in the order of the seeds.
+     */
+    public List<PopulationSeries> run(long[] seeds)
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<PopulationSeries>> futures = new ArrayList<>();
+            for(long seed : seeds) {
+                futures.add(executor.submit(() -> runReplica(seed)));
+            }
+            List<PopulationSeries> results = new ArrayList<>();
+            for(Future<PopulationSeries> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        }
+        catch(ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("A replica failed", e.getCause());
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running the replicas", e);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Run one replica for the full number of steps.
+     * @param seed The seed of the replica.
+     * @return The populations at each step.
+     */
+    private PopulationSeries runReplica(long seed)
+    {
+        Simulator simulator = new Simulator(depth, width, StorageType.DENSE, false, parameters, seed);
+        PopulationSeries series = new PopulationSeries(seed, steps);
+        series.record(simulator.getField());
+        for(int step = 1; step <= steps; step++) {
+            simulator.simulateOneStep();
+            series.record(simulator.getField());
+        }
+        return series;
+    }
+}
@@ -0,0 +1,133 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * The set of organisms in a field. Organisms can be added and removed
+ * in constant time: each organism remembers its slot in the registry,
+ * and removal moves the last organism into the freed slot. The order
+ * of the organisms therefore changes as they are removed.
+ *
+ * An organism remembers its slots in two registries, which is enough
+ * for the current and next states of a field. It must not be added to
+ * a registry that already holds it.
+ *
+ * @author Alexander Sukhin
+ * @version 20/02/2025
+ */
+class EntityRegistry<T extends Organism> extends AbstractList<T>
+{
+    // The organisms, in slots 0 to size-1.
+    private Organism[] items;
+    // The number of organisms in the registry.
+    private int size;
+
+    /**
+     * Create an empty registry.
+     */
+    public EntityRegistry()
+    {
+        items = new Organism[16];
+        size = 0;
+    }
+
+    /**
+     * Add an organism to the registry.
+     * @param item The organism to be added.
+     * @return true.
+     */
+    @Override
+    public boolean add(T item)
+    {
+        if(size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+        }
+        item.setSlot(this, size);
+        items[size++] = item;
+        return true;
+    }
+
+    /**
+     * Remove an organism from the registry.
+     * @param item The organism to be removed.
+     * @return true if the organism was in the registry.
+     */
+    @Override
+    public boolean remove(Object item)
+    {
+        if(!(item instanceof Organism organism)) {
+            return false;
+        }
+        int slot = organism.getSlot(this);
+        if(!holds(organism, slot)) {
+            return false;
+        }
+        Organism last = items[--size];
+        items[slot] = last;
+        last.setSlot(this, slot);
+        items[size] = null;
+        return true;
+    }
+
+    /**
+     * Return the slot of an organism. The slot the organism remembers
+     * is checked rather than the registry searched.
+     * @param item The organism to find.
+     * @return The slot, or -1 if the organism is not in the registry.
+     */
+    @Override
+    public int indexOf(Object item)
+    {
+        if(!(item instanceof Organism organism)) {
+            return -1;
+        }
+        int slot = organism.getSlot(this);
+        return holds(organism, slot) ? slot : -1;
+    }
+
+    /**
+     * Check whether a slot holds an organism. The slot the organism
+     * remembers for a registry is out of date once it has been removed,
+     * or the registry cleared.
+     * @param organism The organism.
+     * @param slot The slot, or -1.
+     * @return true if the organism is in that slot.
+     */
+    boolean holds(Organism organism, int slot)
+    {
+        return slot >= 0 && slot < size && items[slot] == organism;
+    }
+
+    /**
+     * Return the organism in the given slot.
+     * @param index The slot.
+     * @return The organism in that slot.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index)
+    {
+        if(index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return (T) items[index];
+    }
+
+    /**
+     * @return The number of organisms in the registry.
+     */
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Remove all organisms from the registry.
+     */
+    @Override
+    public void clear()
+    {
+        Arrays.fill(items, 0, size, null);
+        size = 0;
+    }
+}
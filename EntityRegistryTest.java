@@ -0,0 +1,131 @@
+import static org.junit.Assert.*;
+
+import java.util.SplittableRandom;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The test class EntityRegistryTest. Organisms are in the registries of
+ * both the current and next states of a field, and the two registries
+ * are cleared and refilled in turn as the states are swapped.
+ *
+ * @author  Alexander Sukhin
+ * @version 27/02/2025
+ */
+public class EntityRegistryTest
+{
+    private Field field;
+    private Deer first, second, third;
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        field = new Field(4, 4);
+        SplittableRandom random = new SplittableRandom(1);
+        first = new Deer(false, field.getLocation(0, 0), random.split());
+        second = new Deer(false, field.getLocation(0, 1), random.split());
+        third = new Deer(false, field.getLocation(0, 2), random.split());
+    }
+
+    @Test
+    public void removeFromBothStates()
+    {
+        EntityRegistry<Animal> current = new EntityRegistry<>();
+        EntityRegistry<Animal> next = new EntityRegistry<>();
+        current.add(first);
+        current.add(second);
+        next.add(second);
+        next.add(first);
+
+        assertTrue(next.remove(first));
+        assertEquals(1, next.size());
+        assertSame(second, next.get(0));
+        assertTrue(current.remove(first));
+        assertEquals(1, current.size());
+        assertSame(second, current.get(0));
+    }
+
+    @Test
+    public void removeAfterSwap()
+    {
+        EntityRegistry<Animal> current = new EntityRegistry<>();
+        EntityRegistry<Animal> next = new EntityRegistry<>();
+        current.add(first);
+        current.add(second);
+        next.add(second);
+        next.add(first);
+
+        // The old state is reused for the state after next.
+        current.clear();
+        current.add(third);
+        current.add(first);
+
+        assertTrue(next.remove(first));
+        assertFalse(next.remove(first));
+        assertEquals(1, next.size());
+        assertSame(second, next.get(0));
+
+        assertFalse(current.remove(second));
+        assertTrue(current.remove(first));
+        assertEquals(1, current.size());
+        assertSame(third, current.get(0));
+    }
+
+    @Test
+    public void indexOfUsesSlot()
+    {
+        EntityRegistry<Animal> registry = new EntityRegistry<>();
+        registry.add(first);
+        registry.add(second);
+        registry.add(third);
+        registry.remove(first);
+
+        assertEquals(0, registry.indexOf(third));
+        assertEquals(1, registry.indexOf(second));
+        assertEquals(-1, registry.indexOf(first));
+        assertEquals(-1, registry.indexOf("first"));
+    }
+
+    @Test
+    public void removeAbsent()
+    {
+        EntityRegistry<Animal> current = new EntityRegistry<>();
+        EntityRegistry<Animal> next = new EntityRegistry<>();
+        current.add(first);
+        next.add(second);
+
+        assertFalse(next.remove(first));
+        assertFalse(current.remove(second));
+        assertEquals(1, current.size());
+        assertEquals(1, next.size());
+    }
+
+    @Test
+    public void removeAfterFieldSwap()
+    {
+        Field next = new Field(field);
+        field.placeAnimal(first, first.getLocation());
+        field.placeAnimal(second, second.getLocation());
+        next.placeAnimal(second, second.getLocation());
+        next.placeAnimal(first, first.getLocation());
+
+        // Swap the states, reusing the old one.
+        field.clear();
+        field.placeAnimal(third, third.getLocation());
+        field.placeAnimal(first, first.getLocation());
+
+        next.removeAnimal(first);
+        assertEquals(1, next.getAnimals().size());
+        assertSame(second, next.getAnimals().get(0));
+        assertEquals(1, next.getCount(Species.DEER));
+
+        field.removeAnimal(first);
+        assertEquals(1, field.getAnimals().size());
+        assertSame(third, field.getAnimals().get(0));
+    }
+}
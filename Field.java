@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 /**
@@ -9,17 +11,63 @@ import java.util.*;
  */
 public class Field
 {
-    // A random number generator for providing random locations.
-    private static final Random rand = Randomizer.getRandom();
+    // Returned by the neighbourhood queries when there is no such cell.
+    public static final int NO_CELL = -1;
+    // The number of directions to a neighbouring cell.
+    public static final int DIRECTIONS = 8;
+    // The row and column offsets of the eight directions to a neighbour.
+    private static final int[] ROW_OFFSETS = { -1, -1, -1, 0, 0, 1, 1, 1 };
+    private static final int[] COL_OFFSETS = { -1, 0, 1, -1, 1, -1, 0, 1 };
+    // Every ordering of the eight directions. Picking one of these at
+    // random visits the neighbours in a random order without shuffling.
+    private static final int[][] NEIGHBOUR_ORDERS = allOrders(DIRECTIONS);
+    // The shard, if any, collecting this thread's changes to the
+    // registries and counts of a field.
+    private static final ThreadLocal<FieldShard> SHARD = new ThreadLocal<>();
 
     // The dimensions of the field.
     private final int depth, width;
-    // Each location holds a pair of Animal, Plant.
-    private final Map<Location, Pair<Animal, Plant>> field = new HashMap<>();
+    // How the cells are stored.
+    private final StorageType storageType;
+    // One shared Location for each cell, indexed by row * width + col,
+    // or null when the storage type does not share locations.
+    private final Location[] locations;
+    // The animal and the plant in each cell.
+    private final CellStorage cells;
+    // One bit per cell, set when the cell holds a live animal or a
+    // plant. The sets are sparse when the storage is.
+    private final CellBits animalBits;
+    private final CellBits plantBits;
     // The animals.
-    private final List<Animal> animals = new ArrayList<>();
+    private final EntityRegistry<Animal> animals = new EntityRegistry<>();
     // The plants.
-    private final List<Plant> plants = new ArrayList<>();
+    private final EntityRegistry<Plant> plants = new EntityRegistry<>();
+    // Read-only views of the animals and plants.
+    private final List<Animal> animalView = Collections.unmodifiableList(animals);
+    private final List<Plant> plantView = Collections.unmodifiableList(plants);
+    // The number of animals of each species in the field, indexed by
+    // species id and kept up to date as animals are placed and removed.
+    private final Counter[] counters = newCounters();
+    // The number of infected animals in the field.
+    private int numInfected;
+    // The indices of the cells holding an animal or a plant, so that
+    // clearing the field only touches cells that were occupied.
+    private int[] occupiedCells = new int[64];
+    // The number of entries in use in occupiedCells.
+    private int occupiedCount;
+    // Whether changes to the registries and counts are being collected
+    // in shards, while several threads write to the field.
+    private boolean sharded;
+    // The schedule of the plants in this state of the field, or null
+    // if the field has not been stepped since it was last cleared.
+    private PlantSchedule plantSchedule;
+    // The schedule of the deaths of the animals, or null likewise.
+    private DeathSchedule deathSchedule;
+    // One bit per cell, set for the cells that may have changed since
+    // the state this one was stepped from.
+    private CellBits changedBits;
+    // Whether changedBits is up to date for this state.
+    private boolean changesRecorded;
 
     /**
      * Represent a field of the given dimensions.   
@@ -27,15 +75,93 @@ public class Field
      * @param width The width of the field.
      */
     public Field(int depth, int width)
+    {
+        this(depth, width, StorageType.DENSE);
+    }
+
+    /**
+     * Represent a field of the given dimensions, stored in the given way.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param storageType How the cells are to be stored.
+     */
+    public Field(int depth, int width, StorageType storageType)
+    {
+        this.depth = depth;
+        this.width = width;
+        this.storageType = storageType;
+        if(storageType.sharesLocations()) {
+            locations = new Location[depth * width];
+            for(int row = 0; row < depth; row++) {
+                for(int col = 0; col < width; col++) {
+                    locations[row * width + col] = new Location(row, col);
+                }
+            }
+        }
+        else {
+            locations = null;
+        }
+        cells = storageType.create(depth, width);
+        animalBits = new CellBits(depth * width, storageType.isSparse());
+        plantBits = new CellBits(depth * width, storageType.isSparse());
+    }
+
+    /**
+     * Represent a field of the given dimensions whose cells are held in
+     * the given off-heap storage, for example one mapped to a file.
+     * A field created from this one with Field(Field) is held in the
+     * same file.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param cells The storage for the cells, which must be empty.
+     */
+    public Field(int depth, int width, OffHeapStorage cells)
     {
         this.depth = depth;
         this.width = width;
+        storageType = StorageType.OFF_HEAP;
+        locations = null;
+        this.cells = cells;
+        animalBits = new CellBits(depth * width, storageType.isSparse());
+        plantBits = new CellBits(depth * width, storageType.isSparse());
+    }
+
+    /**
+     * Represent an empty field with the same dimensions and storage
+     * type as another. If the storage is dense the two fields share the
+     * same Location objects, so their locations can be compared by
+     * identity.
+     * If the other field's cells are off the heap, the two share a
+     * handle table, and if they are mapped to a file, this field's
+     * cells are mapped to the second half of the file.
+     * @param other The field whose dimensions are to be used.
+     * @throws UncheckedIOException If the file cannot be mapped.
+     */
+    public Field(Field other)
+    {
+        depth = other.depth;
+        width = other.width;
+        storageType = other.storageType;
+        locations = other.locations;
+        if(other.cells instanceof OffHeapStorage offHeap) {
+            try {
+                cells = offHeap.createPartner(depth, width);
+            }
+            catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        else {
+            cells = storageType.create(depth, width);
+        }
+        animalBits = new CellBits(depth * width, storageType.isSparse());
+        plantBits = new CellBits(depth * width, storageType.isSparse());
     }
 
     /**
      * Place an animal at the given location.
      * If there is already an animal at the location it will
-     * be lost.
+     * be lost; see claimAnimal for placement that never loses one.
      * @param anAnimal The animal to be placed.
      * @param location Where to place the animal.
      */
@@ -43,15 +169,66 @@ public class Field
     {
         assert location != null;
         
-        Pair<Animal, Plant> existingPair = field.getOrDefault(location, new Pair<>(null, null));
-            
-        if (existingPair.first() != null) {
-            animals.remove(existingPair.first());
+        int index = getCellIndex(location);
+        FieldShard shard = currentShard();
+        Animal existing = cells.getAnimal(index);
+        if (existing != null) {
+            unregister(existing, shard);
+        }
+        else if (cells.getPlant(index) == null) {
+            markOccupied(index, shard);
         }
         
-        Pair<Animal, Plant> newPair = new Pair<>(anAnimal, existingPair.second());
-        field.put(location, newPair);
-        animals.add(anAnimal);
+        cells.setAnimal(index, anAnimal);
+        animalBits.set(index);
+        register(anAnimal, shard);
+    }
+
+    /**
+     * Claim the cell at the given location for an animal. Unlike
+     * placeAnimal no animal is ever lost: if the cell is taken the
+     * claim fails and the animal there keeps it. No two threads ever
+     * write the same cell, so the check and the write need no lock.
+     * The animal's own location is not changed.
+     * @param anAnimal The animal to be placed.
+     * @param location Where to place the animal.
+     * @return true if the animal took the cell.
+     */
+    public boolean claimAnimal(Animal anAnimal, Location location)
+    {
+        assert location != null;
+
+        int index = getCellIndex(location);
+        if(cells.getAnimal(index) != null) {
+            return false;
+        }
+        FieldShard shard = currentShard();
+        cells.setAnimal(index, anAnimal);
+        animalBits.set(index);
+        if(cells.getPlant(index) == null) {
+            markOccupied(index, shard);
+        }
+        register(anAnimal, shard);
+        return true;
+    }
+
+    /**
+     * Remove an animal from the field, e.g. because it has been
+     * eaten after it was placed. Nothing happens if the animal is
+     * not at its recorded location in this field.
+     * @param anAnimal The animal to be removed.
+     */
+    public void removeAnimal(Animal anAnimal)
+    {
+        Location location = anAnimal.getLocation();
+        if(location != null) {
+            int index = getCellIndex(location);
+            if(cells.getAnimal(index) == anAnimal) {
+                cells.setAnimal(index, null);
+                animalBits.clear(index);
+                unregister(anAnimal, currentShard());
+            }
+        }
     }
 
     /**
@@ -65,15 +242,19 @@ public class Field
     {
         assert location != null;
             
-        Pair<Animal, Plant> existingPair = field.getOrDefault(location, new Pair<>(null, null));
-            
-        if (existingPair.second() != null) {
-            plants.remove(existingPair.second());
+        int index = getCellIndex(location);
+        FieldShard shard = currentShard();
+        Plant existing = cells.getPlant(index);
+        if (existing != null) {
+            unregister(existing, shard);
+        }
+        else if (cells.getAnimal(index) == null) {
+            markOccupied(index, shard);
         }
         
-        Pair<Animal, Plant> newPair = new Pair<>(existingPair.first(), plant);
-        field.put(location, newPair);
-        plants.add(plant);
+        cells.setPlant(index, plant);
+        plantBits.set(index);
+        register(plant, shard);
     }
     
     /**
@@ -83,7 +264,7 @@ public class Field
      */
     public Animal getAnimalAt(Location location)
     {   
-        return field.containsKey(location) ? field.get(location).first() : null;
+        return cells.getAnimal(getCellIndex(location));
     }
     
     /**
@@ -93,28 +274,158 @@ public class Field
      */
     public Plant getPlantAt(Location location)
     {
-        return field.containsKey(location) ? field.get(location).second() : null;
+        return cells.getPlant(getCellIndex(location));
+    }
+
+    /**
+     * Return the animal in the given cell, if any.
+     * @param cell The index of the cell.
+     * @return The animal in the cell, or null if there is none.
+     */
+    public Animal getAnimalAt(int cell)
+    {
+        return cells.getAnimal(cell);
+    }
+
+    /**
+     * Return the plant in the given cell, if any.
+     * @param cell The index of the cell.
+     * @return The plant in the cell, or null if there is none.
+     */
+    public Plant getPlantAt(int cell)
+    {
+        return cells.getPlant(cell);
+    }
+
+    /**
+     * Return whether an animal could be placed in the given cell,
+     * i.e. it holds no live animal.
+     * @param cell The index of the cell.
+     * @return true if the cell is free.
+     */
+    public boolean isFree(int cell)
+    {
+        return !animalBits.get(cell);
+    }
+
+    /**
+     * Return whether the given cell holds a plant.
+     * @param cell The index of the cell.
+     * @return true if there is a plant in the cell.
+     */
+    public boolean hasPlant(int cell)
+    {
+        return plantBits.get(cell);
+    }
+
+    /**
+     * Return the occupancy bits for live animals: the bit of a cell is
+     * set if it holds a live animal. An animal counts as live from when
+     * it is placed until it is removed with removeAnimal. The set is
+     * the field's own and must not be modified.
+     * @return The animal occupancy bits.
+     */
+    public CellBits getAnimalOccupancy()
+    {
+        return animalBits;
+    }
+
+    /**
+     * Return the occupancy bits for plants, laid out as for
+     * getAnimalOccupancy. The set must not be modified.
+     * @return The plant occupancy bits.
+     */
+    public CellBits getPlantOccupancy()
+    {
+        return plantBits;
+    }
+
+    /**
+     * Return the free neighbours of a cell as a mask: bit d is set if
+     * the neighbour in direction d lies within the grid and is free.
+     * The mask is built from the occupancy bits of the three rows
+     * around the cell.
+     * @param cell The index of the cell.
+     * @return The mask of free neighbours.
+     */
+    public int getFreeNeighbourMask(int cell)
+    {
+        int row = cell / width;
+        int col = cell - row * width;
+        int above = occupiedWindow(row - 1, col);
+        int level = occupiedWindow(row, col);
+        int below = occupiedWindow(row + 1, col);
+        // The directions run along the row above, then left and
+        // right on this row, then along the row below.
+        int occupied = above | (level & 0b001) << 3 | (level & 0b100) << 2 | below << 5;
+        return ~occupied & 0xFF;
+    }
+
+    /**
+     * Return a random ordering of the directions to a neighbour,
+     * for use with getNeighbour. The array is shared between callers
+     * and must not be modified.
+     * @param random The random number stream to draw from.
+     * @return The directions 0 to DIRECTIONS-1 in a random order.
+     */
+    public int[] randomNeighbourOrder(SplittableRandom random)
+    {
+        return NEIGHBOUR_ORDERS[random.nextInt(NEIGHBOUR_ORDERS.length)];
+    }
+
+    /**
+     * Return the cell next to the given one in the given direction.
+     * @param cell The index of the cell.
+     * @param direction The direction to the neighbour, 0 to DIRECTIONS-1.
+     * @return The index of the neighbour, or NO_CELL if it lies
+     *         outside the grid.
+     */
+    public int getNeighbour(int cell, int direction)
+    {
+        int row = cell / width + ROW_OFFSETS[direction];
+        int col = cell % width + COL_OFFSETS[direction];
+        if(row < 0 || row >= depth || col < 0 || col >= width) {
+            return NO_CELL;
+        }
+        return row * width + col;
+    }
+
+    /**
+     * Return the first free cell adjacent to the given one, visiting
+     * the neighbours in the given order. Calling this again after
+     * filling the returned cell gives the next free one.
+     * @param cell The index of the cell.
+     * @param order The order in which to visit the directions.
+     * @return The index of a free neighbour, or NO_CELL if there is none.
+     */
+    public int getFreeAdjacentCell(int cell, int[] order)
+    {
+        int free = getFreeNeighbourMask(cell);
+        if(free != 0) {
+            for(int direction : order) {
+                if((free & (1 << direction)) != 0) {
+                    return getNeighbour(cell, direction);
+                }
+            }
+        }
+        return NO_CELL;
     }
 
     /**
      * Get a shuffled list of the free adjacent locations.
      * @param location Get locations adjacent to this.
+     * @param random The random number stream to shuffle with.
      * @return A list of free adjacent locations.
      */
-    public List<Location> getFreeAdjacentLocations(Location location)
+    public List<Location> getFreeAdjacentLocations(Location location, SplittableRandom random)
     {
-        List<Location> free = new LinkedList<>();
-        List<Location> adjacent = getAdjacentLocations(location);
-        for(Location next : adjacent) {
-            
-            Pair<Animal, Plant> existingPair = field.get(next);
-            
-            if (existingPair == null) {
-                free.add(next);
-            } else {
-                Animal anAnimal = existingPair.first();
-                if (anAnimal == null || !anAnimal.isAlive()) {
-                    free.add(next);
+        List<Location> free = new ArrayList<>(DIRECTIONS);
+        if(location != null) {
+            int cell = getCellIndex(location);
+            for(int direction : randomNeighbourOrder(random)) {
+                int next = getNeighbour(cell, direction);
+                if(next != NO_CELL && isFree(next)) {
+                    free.add(getLocation(next));
                 }
             }
         }
@@ -126,148 +437,166 @@ public class Field
      * The list will not include the location itself.
      * All locations will lie within the grid.
      * @param location The location from which to generate adjacencies.
+     * @param random The random number stream to shuffle with.
      * @return A list of locations adjacent to that given.
      */
-    public List<Location> getAdjacentLocations(Location location)
+    public List<Location> getAdjacentLocations(Location location, SplittableRandom random)
     {
         // The list of locations to be returned.
-        List<Location> locations = new ArrayList<>();
+        List<Location> locations = new ArrayList<>(DIRECTIONS);
         if(location != null) {
-            int row = location.row();
-            int col = location.col();
-            for(int roffset = -1; roffset <= 1; roffset++) {
-                int nextRow = row + roffset;
-                if(nextRow >= 0 && nextRow < depth) {
-                    for(int coffset = -1; coffset <= 1; coffset++) {
-                        int nextCol = col + coffset;
-                        // Exclude invalid locations and the original location.
-                        if(nextCol >= 0 && nextCol < width && (roffset != 0 || coffset != 0)) {
-                            locations.add(new Location(nextRow, nextCol));
-                        }
-                    }
+            // Several other methods rely on the list being in a
+            // random order.
+            int cell = getCellIndex(location);
+            for(int direction : randomNeighbourOrder(random)) {
+                int next = getNeighbour(cell, direction);
+                if(next != NO_CELL) {
+                    locations.add(getLocation(next));
                 }
             }
-
-            // Shuffle the list. Several other methods rely on the list
-            // being in a random order.
-            Collections.shuffle(locations, rand);
         }
         return locations;
     }
 
     /**
-     * Print out the number of ocelotes and armadillos in the field.
+     * Print out the number of each type of animal in the field.
      */
     public void fieldStats()
     {
-        HashMap<Class<?>, Integer> counts = new HashMap<>();
-        int numInfected = 0;
-        for(Pair<Animal, Plant> pair : field.values()) {
-            Animal anAnimal = pair.first();
-          
-            if (anAnimal != null && anAnimal.isInfected()) {
-                numInfected++;
-            }
-
-            if (anAnimal != null && anAnimal.isAlive()) {
-                Class<?> animalClass = anAnimal.getClass();
-                if (counts.get(animalClass) == null) {
-                    counts.put(animalClass, 1);
-                }
-                else {
-                    int newCount = counts.get(animalClass) + 1;
-                    counts.put(animalClass, newCount);
-                }
-            }
-        }
-        
-        Set<Class<?>> animalClasses = counts.keySet();
         String output = "";
-        for (Class<?> animalClass : animalClasses) {
-            output += animalClass.getSimpleName() + ": " + counts.get(animalClass) + " ";
+        for (Counter counter : counters) {
+            if (counter.getCount() > 0) {
+                output += counter.getName() + ": " + counter.getCount() + " ";
+            }
         }
         System.out.println(output + "Infected: " + numInfected);
     }
 
+    /**
+     * Return the number of infected animals in the field.
+     * @return The number of infected animals.
+     */
     public int infectedCount() {
-        int numInfected = 0;
-        for(Pair<Animal, Plant> pair : field.values()) {
-            
-            Animal anAnimal = pair.first();
-            
-            if (anAnimal != null && anAnimal.isInfected()) {
-                numInfected++;
-            }
-        }
         return numInfected;
     }
 
     /**
-     * Empty the field.
+     * Return the number of animals of the given species in the field.
+     * @param species The species.
+     * @return The number of such animals.
      */
-    public void clear()
+    public int getCount(Species species)
     {
-        field.clear();
+        return counters[species.id()].getCount();
     }
 
     /**
-     * Return whether there is at least one armadillo and one ocelot in the field.
-     * @return true if there is at least one armadillo and one ocelot in the field.
+     * Start collecting changes to the registries and counts in shards,
+     * so that several threads can place and remove organisms at once.
+     * Each thread must then call useShard before writing, and the
+     * threads must write to cells at least two apart. The cells
+     * themselves are updated at once; the registries and counts are
+     * only brought up to date by endSharding.
      */
-    public boolean isViable()
+    public void beginSharding()
     {
-        boolean armadilloFound = false;
-        boolean ocelotFound = false;
-        boolean deerFound = false;
-        boolean snakeFound = false;
-        boolean jaguarFound = false;
-        Iterator<Animal> it = animals.iterator();
-        while(it.hasNext() && ! (armadilloFound && ocelotFound && jaguarFound
-            && deerFound && snakeFound)) {
-            Animal anAnimal = it.next();
-            if(anAnimal instanceof Armadillo armadillo) {
-                if(armadillo.isAlive()) {
-                    armadilloFound = true;
-                }
-            }
-            else if(anAnimal instanceof Ocelot ocelot) {
-                if(ocelot.isAlive()) {
-                    ocelotFound = true;
-                }
+        sharded = true;
+    }
+
+    /**
+     * Collect the calling thread's changes to this field in a shard.
+     * @param shard The shard, or null to stop collecting.
+     */
+    public void useShard(FieldShard shard)
+    {
+        if(shard == null) {
+            SHARD.remove();
+        }
+        else {
+            SHARD.set(shard);
+        }
+    }
+
+    /**
+     * Stop collecting changes in shards, and apply the changes the
+     * shards hold to the registries and counts. The shards are applied
+     * in order, each one's additions before any removals, and are left
+     * empty.
+     * @param shards The shards used since beginSharding.
+     */
+    public void endSharding(FieldShard[] shards)
+    {
+        sharded = false;
+        for(FieldShard shard : shards) {
+            for(int i = 0; i < shard.occupiedCount; i++) {
+                markOccupied(shard.occupied[i], null);
             }
-            else if(anAnimal instanceof Deer deer) {
-                if(deer.isAlive()) {
-                    deerFound = true;
-                }
+            for(int i = 0; i < shard.addedCount; i++) {
+                register(shard.added[i], null);
             }
-            else if(anAnimal instanceof Snake snake) {
-                if(snake.isAlive()) {
-                    snakeFound = true;
-                }
+        }
+        for(FieldShard shard : shards) {
+            for(int i = 0; i < shard.removedCount; i++) {
+                unregister(shard.removed[i], null);
             }
-            else if(anAnimal instanceof Jaguar jaguar) {
-                if(jaguar.isAlive()) {
-                    jaguarFound = true;
-                }
+            shard.clear();
+        }
+    }
+
+    /**
+     * Empty the field. Only the cells that were occupied are
+     * visited, so clearing a sparse field is cheap.
+     */
+    public void clear()
+    {
+        for(int i = 0; i < occupiedCount; i++) {
+            cells.clearCell(occupiedCells[i]);
+        }
+        animalBits.clearCells(occupiedCells, occupiedCount);
+        plantBits.clearCells(occupiedCells, occupiedCount);
+        occupiedCount = 0;
+        animals.clear();
+        plants.clear();
+        for (Counter counter : counters) {
+            counter.reset();
+        }
+        numInfected = 0;
+        plantSchedule = null;
+        deathSchedule = null;
+        changesRecorded = false;
+    }
+
+    /**
+     * Return whether there is at least one animal of each species in the field.
+     * The counts are kept up to date, so this does not scan the field.
+     * @return true if there is at least one animal of each species in the field.
+     */
+    public boolean isViable()
+    {
+        for (Species species : Species.values()) {
+            if (species.isAnimal() && getCount(species) == 0) {
+                return false;
             }
         }
-        return armadilloFound && ocelotFound && deerFound && snakeFound && jaguarFound;
+        return true;
     }
 
     /**
-     * Get the list of animals.
+     * Get the list of animals. The list is a read-only view, in
+     * no particular order.
      */
     public List<Animal> getAnimals()
     {
-        return animals;
+        return animalView;
     }
     
     /**
-     * Get the list of plants.
+     * Get the list of plants. The list is a read-only view, in
+     * no particular order.
      */
     public List<Plant> getPlants()
     {
-        return plants;
+        return plantView;
     }
 
     /**
@@ -287,4 +616,331 @@ public class Field
     {
         return width;
     }
+
+    /**
+     * Add an animal that has been placed to the counts.
+     * @param anAnimal The animal.
+     */
+    private void count(Animal anAnimal)
+    {
+        counters[anAnimal.getSpecies().id()].increment();
+        if(anAnimal.isInfected()) {
+            numInfected++;
+        }
+    }
+
+    /**
+     * Take an animal that has been removed out of the counts.
+     * @param anAnimal The animal.
+     */
+    private void uncount(Animal anAnimal)
+    {
+        counters[anAnimal.getSpecies().id()].decrement();
+        if(anAnimal.isInfected()) {
+            numInfected--;
+        }
+    }
+
+    /**
+     * Add an organism that has been placed to the registries and counts.
+     * @param organism The organism.
+     * @param shard The shard to record the change in, or null.
+     */
+    private void register(Organism organism, FieldShard shard)
+    {
+        if(shard != null) {
+            shard.added(organism);
+        }
+        else if(organism instanceof Animal anAnimal) {
+            animals.add(anAnimal);
+            count(anAnimal);
+        }
+        else {
+            plants.add((Plant) organism);
+        }
+    }
+
+    /**
+     * Take an organism that has been removed out of the registries and
+     * counts.
+     * @param organism The organism.
+     * @param shard The shard to record the change in, or null.
+     */
+    private void unregister(Organism organism, FieldShard shard)
+    {
+        if(shard != null) {
+            shard.removed(organism);
+        }
+        else if(organism instanceof Animal anAnimal) {
+            animals.remove(anAnimal);
+            uncount(anAnimal);
+        }
+        else {
+            plants.remove(organism);
+        }
+    }
+
+    /**
+     * @return The shard collecting the calling thread's changes, or
+     *         null if changes are applied directly.
+     */
+    private FieldShard currentShard()
+    {
+        return sharded ? SHARD.get() : null;
+    }
+
+    /**
+     * Record which cells may differ from the state this one was stepped
+     * from, so that a view can redraw only those. A cell counts as
+     * changed if it holds an animal in either state, since an animal
+     * that stays put may have been infected, or if it holds a different
+     * plant. Only the occupied cells of the two states are visited.
+     * @param previous The state this one was stepped from, which must
+     *                 not have been changed since.
+     */
+    public void recordChanges(Field previous)
+    {
+        if(changedBits == null) {
+            changedBits = new CellBits(depth * width, storageType.isSparse());
+        }
+        else {
+            changedBits.clearAll();
+        }
+        markChanges(this, previous);
+        markChanges(previous, this);
+        changesRecorded = true;
+    }
+
+    /**
+     * Return the cells recorded as changed by recordChanges. The set is
+     * the field's own and must not be modified.
+     * @return The changed cells, or null if they have not been recorded
+     *         since the field was last cleared.
+     */
+    public CellBits getChangedCells()
+    {
+        return changesRecorded ? changedBits : null;
+    }
+
+    /**
+     * Mark the occupied cells of one state that differ from another.
+     * @param state The state whose occupied cells are visited.
+     * @param other The state to compare with.
+     */
+    private void markChanges(Field state, Field other)
+    {
+        for(int i = 0; i < state.occupiedCount; i++) {
+            int index = state.occupiedCells[i];
+            if(state.cells.getAnimal(index) != null
+               || state.cells.getPlant(index) != other.cells.getPlant(index)) {
+                changedBits.set(index);
+            }
+        }
+    }
+
+    /**
+     * Create a counter for each species, indexed by species id.
+     * @return The counters.
+     */
+    private static Counter[] newCounters()
+    {
+        Counter[] counters = new Counter[Species.COUNT];
+        for (Species species : Species.values()) {
+            counters[species.id()] = new Counter(species.toString());
+        }
+        return counters;
+    }
+
+    /**
+     * Return the animal occupancy of the cells from col-1 to col+1 on
+     * the given row, as three bits with the leftmost cell in bit 0.
+     * Cells outside the grid count as occupied.
+     * @param row The row, which may lie outside the grid.
+     * @param col The column of the middle cell.
+     * @return The three occupancy bits.
+     */
+    private int occupiedWindow(int row, int col)
+    {
+        if(row < 0 || row >= depth) {
+            return 0b111;
+        }
+        int start = row * width + col - 1;
+        int window;
+        if(col == 0) {
+            window = bitsFrom(start + 1) << 1 | 0b001;
+        }
+        else {
+            window = bitsFrom(start);
+        }
+        if(col == width - 1) {
+            window |= 0b100;
+        }
+        return window & 0b111;
+    }
+
+    /**
+     * Return the animal occupancy bits of three consecutive cells.
+     * @param index The index of the first cell.
+     * @return The bits, with the first cell in bit 0.
+     */
+    private int bitsFrom(int index)
+    {
+        int word = index >>> 6;
+        int shift = index & 63;
+        long bits = animalBits.word(word) >>> shift;
+        if(shift > 61 && word + 1 < animalBits.wordCount()) {
+            bits |= animalBits.word(word + 1) << (64 - shift);
+        }
+        return (int) bits & 0b111;
+    }
+
+    /**
+     * Record that a previously empty cell now holds something.
+     * @param index The index of the cell.
+     * @param shard The shard to record the change in, or null.
+     */
+    private void markOccupied(int index, FieldShard shard)
+    {
+        if(shard != null) {
+            shard.occupied(index);
+            return;
+        }
+        if(occupiedCount == occupiedCells.length) {
+            occupiedCells = Arrays.copyOf(occupiedCells, occupiedCount * 2);
+        }
+        occupiedCells[occupiedCount++] = index;
+    }
+
+    /**
+     * Return the index of the cell at the given location.
+     * Cells are laid out row by row.
+     * @param location The location of the cell.
+     * @return The cell index, row * width + col.
+     */
+    public int getCellIndex(Location location)
+    {
+        return location.row() * width + location.col();
+    }
+
+    /**
+     * Return the location of the given cell.
+     * @param cell The index of the cell.
+     * @return The shared Location object for the cell, or a new
+     *         one if this field's storage does not share locations.
+     */
+    public Location getLocation(int cell)
+    {
+        if(locations == null) {
+            return new Location(cell / width, cell % width);
+        }
+        return locations[cell];
+    }
+
+    /**
+     * Return the location at the given row and column. Use this
+     * rather than creating a new Location.
+     * @param row The row of the location.
+     * @param col The column of the location.
+     * @return The shared Location object for that position, or a
+     *         new one if this field's storage does not share locations.
+     */
+    public Location getLocation(int row, int col)
+    {
+        if(locations == null) {
+            return new Location(row, col);
+        }
+        return locations[row * width + col];
+    }
+
+    /**
+     * @return How the cells of this field are stored.
+     */
+    public StorageType getStorageType()
+    {
+        return storageType;
+    }
+
+    /**
+     * @return The schedule of the plants in this state of the field,
+     *         or null if there is none yet.
+     */
+    public PlantSchedule getPlantSchedule()
+    {
+        return plantSchedule;
+    }
+
+    /**
+     * Set the schedule of the plants in this state of the field.
+     * @param plantSchedule The schedule.
+     */
+    public void setPlantSchedule(PlantSchedule plantSchedule)
+    {
+        this.plantSchedule = plantSchedule;
+    }
+
+    /**
+     * @return The schedule of the deaths of the animals in this state
+     *         of the field, or null if there is none yet.
+     */
+    public DeathSchedule getDeathSchedule()
+    {
+        return deathSchedule;
+    }
+
+    /**
+     * Set the schedule of the deaths of the animals in this state of
+     * the field.
+     * @param deathSchedule The schedule.
+     */
+    public void setDeathSchedule(DeathSchedule deathSchedule)
+    {
+        this.deathSchedule = deathSchedule;
+    }
+
+    /**
+     * Generate every ordering of the numbers 0 to size-1.
+     * @param size The number of elements to order.
+     * @return All permutations, in lexicographic order.
+     */
+    private static int[][] allOrders(int size)
+    {
+        List<int[]> orders = new ArrayList<>();
+        int[] order = new int[size];
+        for(int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        boolean more = true;
+        while(more) {
+            orders.add(order.clone());
+            // Step to the next permutation in lexicographic order.
+            int i = size - 2;
+            while(i >= 0 && order[i] >= order[i + 1]) {
+                i--;
+            }
+            if(i < 0) {
+                more = false;
+            }
+            else {
+                int j = size - 1;
+                while(order[j] <= order[i]) {
+                    j--;
+                }
+                swap(order, i, j);
+                for(int lo = i + 1, hi = size - 1; lo < hi; lo++, hi--) {
+                    swap(order, lo, hi);
+                }
+            }
+        }
+        return orders.toArray(new int[0][]);
+    }
+
+    /**
+     * Swap two elements of an array.
+     */
+    private static void swap(int[] values, int i, int j)
+    {
+        int tmp = values[i];
+        values[i] = values[j];
+        values[j] = tmp;
+    }
 }
@@ -0,0 +1,72 @@
+import java.util.Arrays;
+
+/**
+ * The changes one thread makes to the registries and counts of a Field
+ * while several threads write to it at once. The cells of the field
+ * are written directly; the organisms placed and removed, and the
+ * cells newly occupied, are recorded here and applied by
+ * Field.endSharding once the threads have finished.
+ *
+ * @author Aryan Sanvee Vijayan
+ * @version 26/02/2025
+ */
+public class FieldShard
+{
+    // The organisms placed in the field.
+    Organism[] added = new Organism[16];
+    int addedCount;
+    // The organisms removed from the field.
+    Organism[] removed = new Organism[16];
+    int removedCount;
+    // The cells that were empty and now hold something.
+    int[] occupied = new int[16];
+    int occupiedCount;
+
+    /**
+     * Record an organism placed in the field.
+     * @param organism The organism.
+     */
+    void added(Organism organism)
+    {
+        if(addedCount == added.length) {
+            added = Arrays.copyOf(added, addedCount * 2);
+        }
+        added[addedCount++] = organism;
+    }
+
+    /**
+     * Record an organism removed from the field.
+     * @param organism The organism.
+     */
+    void removed(Organism organism)
+    {
+        if(removedCount == removed.length) {
+            removed = Arrays.copyOf(removed, removedCount * 2);
+        }
+        removed[removedCount++] = organism;
+    }
+
+    /**
+     * Record a cell that was empty and now holds something.
+     * @param index The index of the cell.
+     */
+    void occupied(int index)
+    {
+        if(occupiedCount == occupied.length) {
+            occupied = Arrays.copyOf(occupied, occupiedCount * 2);
+        }
+        occupied[occupiedCount++] = index;
+    }
+
+    /**
+     * Forget the recorded changes, once they have been applied.
+     */
+    void clear()
+    {
+        Arrays.fill(added, 0, addedCount, null);
+        Arrays.fill(removed, 0, removedCount, null);
+        addedCount = 0;
+        removedCount = 0;
+        occupiedCount = 0;
+    }
+}
@@ -0,0 +1,255 @@
+import java.util.Arrays;
+
+/**
+ * A picture of a field after one step, small enough to be handed from
+ * the simulation to the view every step. Each cell is described by one
+ * byte, its code: 0 for an empty cell, otherwise one more than the
+ * species id of the animal there, or of the plant if there is no
+ * animal, with the INFECTED bit set if the animal is infected. The
+ * snapshot also holds the population counts, so the view needs nothing
+ * more from the field.
+ *
+ * A snapshot does not change once taken. Its cell array may be reused
+ * for a later snapshot, but only by the view, once it has finished with
+ * this one.
+ *
+ * @author Alexander Sukhin
+ * @version 27/02/2025
+ */
+public class FieldSnapshot
+{
+    // The code of an empty cell.
+    public static final int EMPTY = 0;
+    // The bit set in the code of a cell holding an infected animal.
+    public static final int INFECTED = 0x40;
+    // The number of different codes.
+    public static final int CODE_COUNT = 2 * INFECTED;
+
+    // The step, time and weather when the snapshot was taken.
+    private final int step;
+    private final Time time;
+    private final Weather weather;
+    // The dimensions of the field.
+    private final int depth, width;
+    // The code of each cell, by cell index.
+    private final byte[] cells;
+    // The number of animals of each species, indexed by species id.
+    private final int[] counts;
+    // The number of infected animals.
+    private final int infected;
+    // One bit per cell, set for the cells that may have changed since
+    // the previous snapshot, or null if every cell may have.
+    private CellBits changed;
+
+    /**
+     * Take a snapshot of a field.
+     * @param step The step of the simulation.
+     * @param time The time of day.
+     * @param weather The weather.
+     * @param field The field.
+     * @param cells An array to hold the cell codes, or null to allocate
+     *              one. It is used only if it has one entry per cell.
+     */
+    public FieldSnapshot(int step, Time time, Weather weather, Field field, byte[] cells)
+    {
+        this.step = step;
+        this.time = time;
+        this.weather = weather;
+        depth = field.getDepth();
+        width = field.getWidth();
+        int size = depth * width;
+        if(cells == null || cells.length != size) {
+            cells = new byte[size];
+        }
+        else {
+            Arrays.fill(cells, (byte) EMPTY);
+        }
+        // Only visit the cells whose occupancy bits are set, plants
+        // first so that an animal hides the plant beneath it.
+        CellBits plantBits = field.getPlantOccupancy();
+        for(int cell = plantBits.nextSetBit(0); cell >= 0; cell = plantBits.nextSetBit(cell + 1)) {
+            cells[cell] = (byte) (field.getPlantAt(cell).getSpecies().id() + 1);
+        }
+        CellBits animalBits = field.getAnimalOccupancy();
+        for(int cell = animalBits.nextSetBit(0); cell >= 0; cell = animalBits.nextSetBit(cell + 1)) {
+            Animal animal = field.getAnimalAt(cell);
+            int code = animal.getSpecies().id() + 1;
+            if(animal.isInfected()) {
+                code |= INFECTED;
+            }
+            cells[cell] = (byte) code;
+        }
+        this.cells = cells;
+
+        counts = new int[Species.COUNT];
+        for(Species species : Species.values()) {
+            if(species.isAnimal()) {
+                counts[species.id()] = field.getCount(species);
+            }
+        }
+        infected = field.infectedCount();
+
+        CellBits fieldChanges = field.getChangedCells();
+        changed = fieldChanges == null ? null : fieldChanges.copy();
+    }
+
+    /**
+     * @param cell The index of the cell.
+     * @return The code of the cell.
+     */
+    public int getCode(int cell)
+    {
+        return cells[cell];
+    }
+
+    /**
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The code of the cell.
+     */
+    public int getCode(int row, int col)
+    {
+        return cells[row * width + col];
+    }
+
+    /**
+     * Return the species shown by a cell code.
+     * @param code The code.
+     * @return The species, or null for an empty cell.
+     */
+    public static Species getSpecies(int code)
+    {
+        return code == EMPTY ? null : Species.values()[(code & ~INFECTED) - 1];
+    }
+
+    /**
+     * @param code A cell code.
+     * @return true if the code is of an infected animal.
+     */
+    public static boolean isInfected(int code)
+    {
+        return (code & INFECTED) != 0;
+    }
+
+    /**
+     * @return The step of the simulation.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * @return The time of day.
+     */
+    public Time getTime()
+    {
+        return time;
+    }
+
+    /**
+     * @return The weather.
+     */
+    public Weather getWeather()
+    {
+        return weather;
+    }
+
+    /**
+     * @return The depth of the field.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * @return The width of the field.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * @param species An animal species.
+     * @return The number of animals of the species.
+     */
+    public int getCount(Species species)
+    {
+        return counts[species.id()];
+    }
+
+    /**
+     * Get details of what is in the field.
+     * @return A string describing what is in the field.
+     */
+    public String getPopulationDetails()
+    {
+        StringBuilder details = new StringBuilder();
+        for(Species species : Species.values()) {
+            if(counts[species.id()] > 0) {
+                details.append(species)
+                       .append(": ")
+                       .append(counts[species.id()])
+                       .append(' ');
+            }
+        }
+        details.append("Infected: ");
+        details.append(infected);
+        return details.toString();
+    }
+
+    /**
+     * @return true if every cell may have changed since the previous
+     *         snapshot.
+     */
+    public boolean isAllChanged()
+    {
+        return changed == null;
+    }
+
+    /**
+     * Find the next cell that may have changed since the previous
+     * snapshot.
+     * @param from The index of the cell to start looking from.
+     * @return The index of the cell, or -1 if there is none.
+     */
+    public int nextChangedCell(int from)
+    {
+        int size = depth * width;
+        if(from >= size) {
+            return -1;
+        }
+        if(changed == null) {
+            return from;
+        }
+        return changed.nextSetBit(from, size);
+    }
+
+    /**
+     * Count the changes of an earlier snapshot that was never drawn as
+     * changes of this one, so that nothing is missed by skipping it.
+     * Only for use before this snapshot is handed to another thread.
+     * @param earlier The earlier snapshot.
+     */
+    void addChanges(FieldSnapshot earlier)
+    {
+        if(changed == null || earlier.changed == null) {
+            changed = null;
+        }
+        else {
+            changed.or(earlier.changed);
+        }
+    }
+
+    /**
+     * Give up the cell array for reuse. The snapshot must not be used
+     * afterwards.
+     * @return The cell array.
+     */
+    byte[] release()
+    {
+        return cells;
+    }
+}
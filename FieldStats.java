@@ -1,18 +1,15 @@
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * This class collects and provides some statistical data on the state 
  * of a field. It is flexible: it will create and maintain a counter 
- * for any class of object that is found within the field.
+ * for any species that is found within the field.
  * 
  * @author David J. Barnes and Michael Kölling
  * @version 7.0
  */
 public class FieldStats
 {
-    // Counters for each type of entity (fox, rabbit, etc.) in the simulation.
-    private final Map<Class<?>, Counter> counters;
+    // Counters for each species in the simulation, indexed by species id.
+    private final Counter[] counters;
     // Counter for total number of infected animals.
     private int infectedCount;
     // Whether the counters are currently up to date.
@@ -25,7 +22,7 @@ public class FieldStats
     {
         // Set up a collection for counters for each type of animal that
         // we might find
-        counters = new HashMap<>();
+        counters = new Counter[Species.COUNT];
         countsValid = true;
         infectedCount = 0;
     }
@@ -40,8 +37,10 @@ public class FieldStats
         if(!countsValid) {
             generateCounts(field);
         }
-        for(Class<?> key : counters.keySet()) {
-            Counter info = counters.get(key);
+        for(Counter info : counters) {
+            if(info == null) {
+                continue;
+            }
             details.append(info.getName())
                    .append(": ")
                    .append(info.getCount())
@@ -59,24 +58,25 @@ public class FieldStats
     public void reset()
     {
         countsValid = false;
-        for(Class<?> key : counters.keySet()) {
-            Counter count = counters.get(key);
-            count.reset();
+        for(Counter count : counters) {
+            if(count != null) {
+                count.reset();
+            }
         }
     }
 
     /**
-     * Increment the count for one class of animal.
-     * @param animalClass The class of animal to increment.
+     * Increment the count for one species.
+     * @param species The species to increment.
      */
-    public void incrementCount(Class<?> animalClass)
+    public void incrementCount(Species species)
     {
-        Counter count = counters.get(animalClass);
+        Counter count = counters[species.id()];
         if(count == null) {
             // We do not have a counter for this species yet.
             // Create one.
-            count = new Counter(animalClass.getName());
-            counters.put(animalClass, count);
+            count = new Counter(species.toString());
+            counters[species.id()] = count;
         }
         count.increment();
     }
@@ -109,13 +109,10 @@ public class FieldStats
     private void generateCounts(Field field)
     {
         reset();
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Animal animal = field.getAnimalAt(new Location(row, col));
-                if(animal != null) {
-                    incrementCount(animal.getClass());
-                }
-            }
+        // Only visit the cells whose occupancy bit is set.
+        CellBits occupancy = field.getAnimalOccupancy();
+        for(int cell = occupancy.nextSetBit(0); cell >= 0; cell = occupancy.nextSetBit(cell + 1)) {
+            incrementCount(field.getAnimalAt(cell).getSpecies());
         }
         countsValid = true;
     }
@@ -0,0 +1,177 @@
+/**
+ * A summary of a field at several levels of detail, for drawing an
+ * overview of a field too big to draw cell by cell. At level k the
+ * field is divided into blocks of 2^k by 2^k cells, and the summary
+ * holds the number of cells of each block showing each species. Level
+ * 0 is the cells themselves.
+ *
+ * The summary is kept up to date from the changed cells of each
+ * snapshot, so the cost of an update follows the number of changes
+ * rather than the size of the field. Only the coarser levels are
+ * stored, from the lowest level given up to the top one, since the
+ * finest would take more room than the cells themselves.
+ *
+ * @author Aryan Sanvee Vijayan
+ * @version 27/02/2025
+ */
+public class FieldSummary
+{
+    // The dimensions of the field.
+    private final int depth, width;
+    // The finest and coarsest levels stored, besides level 0.
+    private final int lowLevel, topLevel;
+    // The code of each cell, as last counted.
+    private final byte[] codes;
+    // The number of cells showing each species in each block, for each
+    // stored level from lowLevel. The count for a block and species is
+    // at (blockRow * blockCols + blockCol) * Species.COUNT + species id.
+    private final int[][] counts;
+
+    /**
+     * Create a summary of an empty field.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param lowLevel The finest level stored, at least 1.
+     * @param topLevel The coarsest level stored.
+     */
+    public FieldSummary(int depth, int width, int lowLevel, int topLevel)
+    {
+        if(lowLevel < 1 || topLevel < lowLevel) {
+            throw new IllegalArgumentException("Bad levels: " + lowLevel + " to " + topLevel);
+        }
+        this.depth = depth;
+        this.width = width;
+        this.lowLevel = lowLevel;
+        this.topLevel = topLevel;
+        codes = new byte[depth * width];
+        counts = new int[topLevel - lowLevel + 1][];
+        for(int level = lowLevel; level <= topLevel; level++) {
+            counts[level - lowLevel] = new int[getBlockRows(level) * getBlockCols(level) * Species.COUNT];
+        }
+    }
+
+    /**
+     * Bring the summary up to date with a snapshot, counting only the
+     * cells that have changed since the previous snapshot.
+     * @param snapshot The snapshot, of a field of this size.
+     */
+    public void update(FieldSnapshot snapshot)
+    {
+        for(int cell = snapshot.nextChangedCell(0); cell >= 0;
+            cell = snapshot.nextChangedCell(cell + 1)) {
+            int code = snapshot.getCode(cell);
+            int oldCode = codes[cell];
+            if(code != oldCode) {
+                int row = cell / width;
+                int col = cell % width;
+                if(oldCode != FieldSnapshot.EMPTY) {
+                    count(row, col, speciesId(oldCode), -1);
+                }
+                if(code != FieldSnapshot.EMPTY) {
+                    count(row, col, speciesId(code), 1);
+                }
+                codes[cell] = (byte) code;
+            }
+        }
+    }
+
+    /**
+     * @return The finest level stored, besides level 0.
+     */
+    public int getLowLevel()
+    {
+        return lowLevel;
+    }
+
+    /**
+     * @return The coarsest level stored.
+     */
+    public int getTopLevel()
+    {
+        return topLevel;
+    }
+
+    /**
+     * @param level A level.
+     * @return The number of rows of blocks at the level.
+     */
+    public int getBlockRows(int level)
+    {
+        return (depth + (1 << level) - 1) >> level;
+    }
+
+    /**
+     * @param level A level.
+     * @return The number of columns of blocks at the level.
+     */
+    public int getBlockCols(int level)
+    {
+        return (width + (1 << level) - 1) >> level;
+    }
+
+    /**
+     * Return the number of cells of a block showing a species.
+     * @param level A stored level.
+     * @param blockRow The row of the block.
+     * @param blockCol The column of the block.
+     * @param species The species.
+     * @return The number of cells.
+     */
+    public int getCount(int level, int blockRow, int blockCol, Species species)
+    {
+        int block = blockRow * getBlockCols(level) + blockCol;
+        return counts[level - lowLevel][block * Species.COUNT + species.id()];
+    }
+
+    /**
+     * Return the code to show for a block: the code of the species
+     * shown by the most cells of the block, or of the cell itself at
+     * level 0.
+     * @param level Level 0 or a stored level.
+     * @param blockRow The row of the block.
+     * @param blockCol The column of the block.
+     * @return The code, FieldSnapshot.EMPTY if the block is empty.
+     */
+    public int getCode(int level, int blockRow, int blockCol)
+    {
+        if(level == 0) {
+            return codes[blockRow * width + blockCol];
+        }
+        int[] levelCounts = counts[level - lowLevel];
+        int start = (blockRow * getBlockCols(level) + blockCol) * Species.COUNT;
+        int code = FieldSnapshot.EMPTY;
+        int most = 0;
+        for(int id = 0; id < Species.COUNT; id++) {
+            if(levelCounts[start + id] > most) {
+                most = levelCounts[start + id];
+                code = id + 1;
+            }
+        }
+        return code;
+    }
+
+    /**
+     * Add to the count of a species in the blocks holding a cell at
+     * every stored level.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @param id The species id.
+     * @param change The amount to add.
+     */
+    private void count(int row, int col, int id, int change)
+    {
+        for(int level = lowLevel; level <= topLevel; level++) {
+            int block = (row >> level) * getBlockCols(level) + (col >> level);
+            counts[level - lowLevel][block * Species.COUNT + id] += change;
+        }
+    }
+
+    /**
+     * @param code A code other than FieldSnapshot.EMPTY.
+     * @return The id of the species shown by the code.
+     */
+    private static int speciesId(int code)
+    {
+        return (code & ~FieldSnapshot.INFECTED) - 1;
+    }
+}
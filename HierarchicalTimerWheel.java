@@ -0,0 +1,212 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A hierarchical timer wheel: several rings of 64 slots, each ring's
+ * slots spanning 64 times as many ticks as the last. An item is put in
+ * the finest ring whose span reaches its tick; as time moves on, the
+ * items in a slot of a coarser ring are moved down to finer rings, so
+ * an item is moved at most once per ring before it is due. Scheduling
+ * and collecting items take constant time per item, however far ahead
+ * they are due and however many are waiting.
+ *
+ * Ticks are collected one at a time, in order, starting just after
+ * the tick the wheel was created at. A wheel of one ring is a plain
+ * timer wheel: an item due more than a turn ahead waits in its slot
+ * until its turn comes round, and the items due at a tick are
+ * collected in the order they were scheduled. Items that are no longer wanted
+ * need not be cancelled: a test passed when collecting drops them
+ * whenever they are moved down a ring or come due.
+ *
+ * @author Aryan Sanvee Vijayan
+ * @version 27/02/2025
+ */
+public class HierarchicalTimerWheel<T>
+{
+    // The number of bits of a tick that select a slot in one ring.
+    private static final int SLOT_BITS = 6;
+    // The number of slots in a ring.
+    private static final int SLOTS = 1 << SLOT_BITS;
+
+    // The number of rings.
+    private final int rings;
+    // The items in each slot of each ring, and the tick each is due at.
+    private final Object[][][] items;
+    private final long[][][] ticks;
+    // The number of items in each slot of each ring.
+    private final int[][] sizes;
+    // The last tick collected.
+    private long now;
+    // The number of items waiting.
+    private int size;
+    // Where the items of a slot being moved to finer rings are held.
+    private Object[] moving = new Object[16];
+    private long[] movingTicks = new long[16];
+
+    /**
+     * Create an empty wheel.
+     * @param rings The number of rings, at least one. Items due more
+     *              than 64 to the power of this many ticks ahead wait
+     *              in the coarsest ring and are looked at once per turn.
+     * @param start The tick the wheel starts at; the first tick
+     *              collected is the one after it.
+     */
+    public HierarchicalTimerWheel(int rings, long start)
+    {
+        if(rings < 1) {
+            throw new IllegalArgumentException("A wheel needs at least one ring: " + rings);
+        }
+        this.rings = rings;
+        items = new Object[rings][SLOTS][];
+        ticks = new long[rings][SLOTS][];
+        sizes = new int[rings][SLOTS];
+        now = start;
+    }
+
+    /**
+     * Schedule an item for a tick after the last one collected.
+     * @param item The item.
+     * @param tick The tick the item is due at.
+     */
+    public void schedule(T item, long tick)
+    {
+        if(tick <= now) {
+            throw new IllegalArgumentException("Tick " + tick + " is not after " + now);
+        }
+        insert(item, tick);
+        size++;
+    }
+
+    /**
+     * Move on to the next tick and take the items due at it out of the
+     * wheel.
+     * @param due The list to add the items to.
+     * @return The tick collected.
+     */
+    public long poll(List<? super T> due)
+    {
+        return poll(due, item -> true);
+    }
+
+    /**
+     * Move on to the next tick and take the items due at it out of the
+     * wheel, dropping those no longer wanted, both among the items due
+     * and among those moved down to finer rings.
+     * @param due The list to add the wanted items to.
+     * @param wanted Whether an item is still wanted.
+     * @return The tick collected.
+     */
+    @SuppressWarnings("unchecked")
+    public long poll(List<? super T> due, Predicate<? super T> wanted)
+    {
+        now++;
+        // Move the items of the coarser slots that start at this tick
+        // down to the finer rings, coarsest first.
+        for(int ring = rings - 1; ring > 0; ring--) {
+            if((now & ((1L << (SLOT_BITS * ring)) - 1)) == 0) {
+                int slot = slotOf(ring, now);
+                int n = sizes[ring][slot];
+                if(moving.length < n) {
+                    moving = new Object[n];
+                    movingTicks = new long[n];
+                }
+                if(n > 0) {
+                    System.arraycopy(items[ring][slot], 0, moving, 0, n);
+                    System.arraycopy(ticks[ring][slot], 0, movingTicks, 0, n);
+                    Arrays.fill(items[ring][slot], 0, n, null);
+                }
+                sizes[ring][slot] = 0;
+                for(int i = 0; i < n; i++) {
+                    if(!wanted.test((T) moving[i])) {
+                        size--;
+                    }
+                    else if(movingTicks[i] == now) {
+                        due.add((T) moving[i]);
+                        size--;
+                    }
+                    else {
+                        insert(moving[i], movingTicks[i]);
+                    }
+                    moving[i] = null;
+                }
+            }
+        }
+        // With a single ring, the finest ring also holds items due on
+        // later turns, which stay where they are.
+        int slot = slotOf(0, now);
+        Object[] slotItems = items[0][slot];
+        long[] slotTicks = ticks[0][slot];
+        int n = sizes[0][slot];
+        int kept = 0;
+        for(int i = 0; i < n; i++) {
+            if(slotTicks[i] == now) {
+                if(wanted.test((T) slotItems[i])) {
+                    due.add((T) slotItems[i]);
+                }
+            }
+            else {
+                slotItems[kept] = slotItems[i];
+                slotTicks[kept] = slotTicks[i];
+                kept++;
+            }
+        }
+        if(n > 0) {
+            Arrays.fill(slotItems, kept, n, null);
+        }
+        sizes[0][slot] = kept;
+        size -= n - kept;
+        return now;
+    }
+
+    /**
+     * @return The last tick collected, or the starting tick.
+     */
+    public long getTime()
+    {
+        return now;
+    }
+
+    /**
+     * @return The number of items waiting.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Put an item in the finest ring whose span, from the current
+     * tick, reaches the item's tick.
+     * @param item The item.
+     * @param tick The tick the item is due at, after the current tick.
+     */
+    private void insert(Object item, long tick)
+    {
+        int ring = 0;
+        while(ring < rings - 1 && (tick >>> (SLOT_BITS * (ring + 1))) != (now >>> (SLOT_BITS * (ring + 1)))) {
+            ring++;
+        }
+        int slot = slotOf(ring, tick);
+        int n = sizes[ring][slot];
+        if(items[ring][slot] == null) {
+            items[ring][slot] = new Object[4];
+            ticks[ring][slot] = new long[4];
+        }
+        else if(n == items[ring][slot].length) {
+            items[ring][slot] = Arrays.copyOf(items[ring][slot], n * 2);
+            ticks[ring][slot] = Arrays.copyOf(ticks[ring][slot], n * 2);
+        }
+        items[ring][slot][n] = item;
+        ticks[ring][slot][n] = tick;
+        sizes[ring][slot] = n + 1;
+    }
+
+    /**
+     * @return The slot of a tick in a ring.
+     */
+    private static int slotOf(int ring, long tick)
+    {
+        return (int) (tick >>> (SLOT_BITS * ring)) & (SLOTS - 1);
+    }
+}
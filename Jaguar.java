@@ -1,4 +1,4 @@
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.List;
 
 /**
@@ -10,39 +10,48 @@ import java.util.List;
  */
 public class Jaguar extends Predator
 {
-    // Characteristics shared by all wolves (class variables).
-    // The age at which a jaguar can start to breed.
-    private static final int BREEDING_AGE = 15;
-    // The age to which a jaguar can live.
-    private static final int MAX_AGE = 180;
-    // The likelihood of a jaguar breeding.
-    private static final double BREEDING_PROBABILITY = 0.08;
-    // The maximum number of births.
-    private static final int MAX_LITTER_SIZE = 2;
-    // Jaguars are primarily nocturnal, with low hunting during day.
-    // The likelihood of a jaguar hunting during the night.
-    private static final double NIGHT_HUNT_PROBABILITY = 0.9;
-    // The likelihood of a jaguar hunting during the night.
-    private static final double DAY_HUNT_PROBABILITY = 0.25;
+    /**
+     * Create a jaguar. A jaguar can be created as a new born (age zero
+     * and not hungry) or with a random age and food level.
+     * The default parameters are used.
+     * 
+     * @param randomAge If true, the jaguar will have random age and hunger level.
+     * @param location The location within the field.
+     * @param random The animal's own stream of random numbers.
+     */
+    public Jaguar(boolean randomAge, Location location, SplittableRandom random)
+    {
+        this(Parameters.DEFAULTS, randomAge, location, random);
+    }
 
     /**
      * Create a jaguar. A jaguar can be created as a new born (age zero
      * and not hungry) or with a random age and food level.
      * 
+     * @param parameters The parameters of the simulation.
      * @param randomAge If true, the jaguar will have random age and hunger level.
      * @param location The location within the field.
+     * @param random The animal's own stream of random numbers.
      */
-    public Jaguar(boolean randomAge, Location location)
+    public Jaguar(Parameters parameters, boolean randomAge, Location location, SplittableRandom random)
     {
-        super(location, Deer.class);
+        super(parameters, location, random);
         if(randomAge) {
-            setAge(randInt(MAX_AGE));
+            setAge(randInt(getParameters().getInt(Parameter.JAGUAR_MAX_AGE)));
         }
         else {
             setAge(0);
         }
     }
 
+    /**
+     * @return The species of this jaguar.
+     */
+    public Species getSpecies()
+    {
+        return Species.JAGUAR;
+    }
+
     @Override
     public String toString() {
         return "Jaguar{" +
@@ -54,13 +63,11 @@ public class Jaguar extends Predator
     }
 
     /**
-     * Check if the jaguar is too old to live.
+     * @return The age to which a jaguar can live.
      */
-    protected void checkIfTooOld()
+    protected int getMaxAge()
     {
-        if(getAge() > MAX_AGE) {
-            setDead();
-        }
+        return getParameters().getInt(Parameter.JAGUAR_MAX_AGE);
     }
 
     /**
@@ -84,7 +91,8 @@ public class Jaguar extends Predator
      */
     protected boolean breedSuccess()
     {
-        return getAge() >= BREEDING_AGE && randDouble() <= BREEDING_PROBABILITY;
+        return getAge() >= getParameters().getInt(Parameter.JAGUAR_BREEDING_AGE)
+            && randDouble() <= getParameters().get(Parameter.JAGUAR_BREEDING_PROBABILITY);
     }
 
     /**
@@ -93,7 +101,7 @@ public class Jaguar extends Predator
      * @return The offspring.
      */
     protected Animal offspring(Location loc) {
-        Jaguar young = new Jaguar(false,loc);
+        Jaguar young = new Jaguar(getParameters(), false, loc, getRandom().split());
         return young;
     }
 
@@ -102,7 +110,7 @@ public class Jaguar extends Predator
      * @return Number of offspring.
      */
     protected int birthNumber() {
-        return randInt(MAX_LITTER_SIZE) + 1;
+        return randInt(getParameters().getInt(Parameter.JAGUAR_MAX_LITTER_SIZE)) + 1;
     }
 
     /**
@@ -112,10 +120,10 @@ public class Jaguar extends Predator
      */
     public boolean huntSuccess(Time time) {
         if (time == Time.NIGHT) {
-            return randDouble() <= NIGHT_HUNT_PROBABILITY;
+            return randDouble() <= getParameters().get(Parameter.JAGUAR_NIGHT_HUNT_PROBABILITY);
         } 
         else {
-            return randDouble() <= DAY_HUNT_PROBABILITY;
+            return randDouble() <= getParameters().get(Parameter.JAGUAR_DAY_HUNT_PROBABILITY);
         }
     }
 }
@@ -23,18 +23,21 @@ public class LeafCell extends Plant
     }
 
     /**
-     * This is what the leaf cells do most of the time. It remains stationary
-     * until eaten from a prey.
-     * @param currentField The field currently occupied.
-     * @param nextFieldState The updated field.
+     * @return The species of this leaf cell.
      */
-    public void act(Field currentField, Field nextFieldState, Time time)
+    public Species getSpecies()
     {
-        if (isAlive()) {
-            nextFieldState.placePlant(this, getLocation());
-        }
+        return Species.LEAF_CELL;
     }
-    
+
+    /**
+     * @return The core plant the leaf cell extends from.
+     */
+    public CorePlant getParent()
+    {
+        return parent;
+    }
+
     /**
      * Removes a leaf cell plant from the the field and
      * the list of leaf cells within the core plant.
@@ -1,5 +1,10 @@
 /**
  * Represent a location in a rectangular grid.
+ * A densely stored Field holds one shared instance per cell; get
+ * locations from Field.getLocation rather than creating new ones.
+ * Only locations from densely stored fields may be compared by
+ * identity. Chunked and off-heap fields create a new Location on each
+ * call, so compare locations with equals unless the field is dense.
  *
  * @author David J. Barnes and Michael Kölling
  * @version 7.0
@@ -1,6 +1,6 @@
 import java.util.List;
 import java.util.Iterator;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * A simple model of a ocelot.
@@ -11,40 +11,48 @@ import java.util.Random;
  */
 public class Ocelot extends Predator
 {
-    // Characteristics shared by all ocelotes (class variables).
-    // The age at which a ocelot can start to breed.
-    private static final int BREEDING_AGE = 15;
-    // The age to which a ocelot can live.
-    private static final int MAX_AGE = 150;
-    // The likelihood of a ocelot breeding.
-    private static final double BREEDING_PROBABILITY = 0.3;
-    // The maximum number of births.
-    private static final int MAX_LITTER_SIZE = 5;
-    // Ocelots are nocturnal but are somewhat active during day as well.
-    // The probability of an ocelot to hunt at night.
-    private static final double NIGHT_HUNT_PROBABILITY = 0.75;
-    // The probability of an ocelot to hunt at day.
-    private static final double DAY_HUNT_PROBABILITY = 0.5;
-    
+    /**
+     * Create a ocelot. A ocelot can be created as a new born (age zero
+     * and not hungry) or with a random age and food level.
+     * The default parameters are used.
+     * 
+     * @param randomAge If true, the ocelot will have random age and hunger level.
+     * @param location The location within the field.
+     * @param random The animal's own stream of random numbers.
+     */
+    public Ocelot(boolean randomAge, Location location, SplittableRandom random)
+    {
+        this(Parameters.DEFAULTS, randomAge, location, random);
+    }
 
     /**
      * Create a ocelot. A ocelot can be created as a new born (age zero
      * and not hungry) or with a random age and food level.
      * 
+     * @param parameters The parameters of the simulation.
      * @param randomAge If true, the ocelot will have random age and hunger level.
      * @param location The location within the field.
+     * @param random The animal's own stream of random numbers.
      */
-    public Ocelot(boolean randomAge, Location location)
+    public Ocelot(Parameters parameters, boolean randomAge, Location location, SplittableRandom random)
     {
-        super(location, Armadillo.class);
+        super(parameters, location, random);
         if(randomAge) {
-            setAge(randInt(MAX_AGE));
+            setAge(randInt(getParameters().getInt(Parameter.OCELOT_MAX_AGE)));
         }
         else {
             setAge(0);
         }
     }
     
+    /**
+     * @return The species of this ocelot.
+     */
+    public Species getSpecies()
+    {
+        return Species.OCELOT;
+    }
+
     /**
      * Calculate whether a hunt is successful.
      * @param time The time of day/night.
@@ -52,10 +60,10 @@ public class Ocelot extends Predator
      */
     public boolean huntSuccess(Time time) {
         if (time == Time.NIGHT) {
-            return randDouble() <= NIGHT_HUNT_PROBABILITY;
+            return randDouble() <= getParameters().get(Parameter.OCELOT_NIGHT_HUNT_PROBABILITY);
         } 
         else {
-            return randDouble() <= DAY_HUNT_PROBABILITY;
+            return randDouble() <= getParameters().get(Parameter.OCELOT_DAY_HUNT_PROBABILITY);
         }
     }
 
@@ -69,27 +77,11 @@ public class Ocelot extends Predator
     }
 
     /**
-     *  Check if the ocelot is too old to live.
+     * @return The age to which an ocelot can live.
      */
-    protected void checkIfTooOld()
+    protected int getMaxAge()
     {
-        if(getAge() > MAX_AGE) {
-            setDead();
-        }
-    }
-    
-    /**
-     * Check if the given animal is a prey of Ocelot.
-     * @param animal The animal to check if its a prey.
-     * @return true, if the animal is a prey, otherwise false.
-     */
-    protected boolean isPrey(Animal animal) {
-        if(animal instanceof Armadillo armadillo) {
-            return true;
-        }
-        else {
-            return false;
-        }
+        return getParameters().getInt(Parameter.OCELOT_MAX_AGE);
     }
     
     /**
@@ -99,7 +91,8 @@ public class Ocelot extends Predator
      */
     protected boolean breedSuccess()
     {
-        return getAge() >= BREEDING_AGE && randDouble() <= BREEDING_PROBABILITY;
+        return getAge() >= getParameters().getInt(Parameter.OCELOT_BREEDING_AGE)
+            && randDouble() <= getParameters().get(Parameter.OCELOT_BREEDING_PROBABILITY);
     }
     
     /**
@@ -108,7 +101,7 @@ public class Ocelot extends Predator
      * @return The offspring.
      */
     protected Animal offspring(Location loc) {
-        Ocelot young = new Ocelot(false,loc);
+        Ocelot young = new Ocelot(getParameters(), false, loc, getRandom().split());
         return young;
     }
     
@@ -117,6 +110,6 @@ public class Ocelot extends Predator
      * @return Number of offspring.
      */
     protected int birthNumber() {
-        return randInt(MAX_LITTER_SIZE) + 1;
+        return randInt(getParameters().getInt(Parameter.OCELOT_MAX_LITTER_SIZE)) + 1;
     }
 }
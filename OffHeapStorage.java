@@ -0,0 +1,366 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Cell storage held outside the Java heap, for very large fields. Each
+ * cell is a packed record in a direct or memory-mapped buffer:
+ *
+ *   bytes 0-3   handle of the animal in the cell (0 if none)
+ *   bytes 4-7   handle of the plant in the cell (0 if none)
+ *   byte  8     species id of the animal, plus one (0 if none)
+ *   byte  9     species id of the plant, plus one (0 if none)
+ *   bytes 10-11 unused
+ *
+ * Values are little-endian. Plants are stored the same way as animals,
+ * as a handle and a species id; the rest of their state stays in the
+ * Plant objects. Handles index a table of the organisms themselves,
+ * which grows with the population rather than the size of the field,
+ * so the garbage collector never has to scan per-cell state. An empty
+ * cell is all zeroes.
+ *
+ * A storage can have partners for the other state of the same field,
+ * which the simulator swaps with it after each step. Partners share
+ * one handle table. An organism keeps its handle for as long as any
+ * record of the partners refers to it, and remembers it, so writing it
+ * back to a cell, moving it, or carrying it over to the other state
+ * reuses the handle rather than taking a new one. The table therefore
+ * holds one entry per live organism, not one per organism per state.
+ * Only one thread may write to a storage or its partners at a time,
+ * since writing a cell takes or releases a handle.
+ *
+ * The partner of storage mapped to a file is mapped to the second half
+ * of the file, which then holds the records of both states, one after
+ * the other.
+ *
+ * @author Alexander Sukhin
+ * @version 23/02/2025
+ */
+public class OffHeapStorage implements CellStorage
+{
+    // The size of one cell record in bytes.
+    public static final int CELL_BYTES = 12;
+    // The offsets of the fields within a cell record.
+    private static final int ANIMAL_HANDLE = 0;
+    private static final int PLANT_HANDLE = 4;
+    private static final int ANIMAL_SPECIES = 8;
+    private static final int PLANT_SPECIES = 9;
+    // The number of cells in each buffer. A single buffer is limited
+    // to 2GB, so large fields are split over several.
+    private static final int CELLS_SHIFT = 24;
+    private static final int CELLS_PER_BUFFER = 1 << CELLS_SHIFT;
+    private static final int CELLS_MASK = CELLS_PER_BUFFER - 1;
+
+    // The cell records, CELLS_PER_BUFFER cells to a buffer.
+    private final ByteBuffer[] buffers;
+    // The file the records are mapped from, or null if they are held
+    // in direct memory.
+    private final Path file;
+    // Whether the records are the second state in the file.
+    private final boolean second;
+    // Whether a partner has been created for this storage.
+    private boolean partnered;
+    // The handles of the organisms, shared with any partners.
+    private final Handles handles;
+
+    /**
+     * Create storage for a field of the given size in direct memory.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public OffHeapStorage(int depth, int width)
+    {
+        this(depth, width, new Handles());
+    }
+
+    /**
+     * Create storage in direct memory sharing a handle table.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param handles The handle table.
+     */
+    private OffHeapStorage(int depth, int width, Handles handles)
+    {
+        this.handles = handles;
+        long cells = (long) depth * width;
+        buffers = new ByteBuffer[bufferCount(cells)];
+        file = null;
+        second = false;
+        for(int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.allocateDirect(bufferBytes(cells, i))
+                                   .order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Create storage for a field of the given size in a file, which is
+     * mapped into memory. Any previous contents of the file are
+     * discarded, since handles mean nothing outside this storage. The
+     * cell records can be read directly from the file by other tools.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param file The file to hold the cells.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    public OffHeapStorage(int depth, int width, Path file) throws IOException
+    {
+        this(depth, width, file, false, new Handles());
+    }
+
+    /**
+     * Create storage for one of the two states of a field in a file.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param file The file to hold the cells.
+     * @param second false for the first state, which discards any
+     *               previous contents of the file, true for the second.
+     * @param handles The handle table.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    private OffHeapStorage(int depth, int width, Path file, boolean second,
+                           Handles handles) throws IOException
+    {
+        this.handles = handles;
+        long cells = (long) depth * width;
+        buffers = new ByteBuffer[bufferCount(cells)];
+        this.file = file;
+        this.second = second;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE)) {
+            // Mapping past the end of the file extends it with zeroes.
+            long position = 0;
+            if(second) {
+                position = cells * CELL_BYTES;
+            }
+            else {
+                channel.truncate(0);
+            }
+            for(int i = 0; i < buffers.length; i++) {
+                int size = bufferBytes(cells, i);
+                buffers[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, size)
+                                    .order(ByteOrder.LITTLE_ENDIAN);
+                position += size;
+            }
+        }
+    }
+
+    /**
+     * Create storage for the other state of the same field, sharing
+     * this storage's handle table. Storage in direct memory can have
+     * any number of partners. Storage mapped to a file has one, mapped
+     * to the second half of the file.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @return The new storage.
+     * @throws IOException If the file cannot be mapped.
+     * @throws IllegalStateException If this storage is not the first
+     *         state in a file, or already has a partner.
+     */
+    public OffHeapStorage createPartner(int depth, int width) throws IOException
+    {
+        if(file == null) {
+            return new OffHeapStorage(depth, width, handles);
+        }
+        if(second || partnered) {
+            throw new IllegalStateException("Only the first state in a file can have a partner, once");
+        }
+        partnered = true;
+        return new OffHeapStorage(depth, width, file, true, handles);
+    }
+
+    /**
+     * @return true if the cell records are mapped from a file.
+     */
+    public boolean isMapped()
+    {
+        return file != null;
+    }
+
+    public Animal getAnimal(int cell)
+    {
+        return (Animal) handles.organisms[buffer(cell).getInt(offset(cell) + ANIMAL_HANDLE)];
+    }
+
+    public Plant getPlant(int cell)
+    {
+        return (Plant) handles.organisms[buffer(cell).getInt(offset(cell) + PLANT_HANDLE)];
+    }
+
+    public void setAnimal(int cell, Animal animal)
+    {
+        set(cell, ANIMAL_HANDLE, ANIMAL_SPECIES, animal);
+    }
+
+    public void setPlant(int cell, Plant plant)
+    {
+        set(cell, PLANT_HANDLE, PLANT_SPECIES, plant);
+    }
+
+    public void clearCell(int cell)
+    {
+        set(cell, ANIMAL_HANDLE, ANIMAL_SPECIES, null);
+        set(cell, PLANT_HANDLE, PLANT_SPECIES, null);
+    }
+
+    /**
+     * Return the species of the animal in a cell, read straight from
+     * the cell record.
+     * @param cell The index of the cell.
+     * @return The species id, or -1 if there is no animal.
+     */
+    public int getAnimalSpeciesId(int cell)
+    {
+        return buffer(cell).get(offset(cell) + ANIMAL_SPECIES) - 1;
+    }
+
+    /**
+     * Return the species of the plant in a cell, read straight from
+     * the cell record.
+     * @param cell The index of the cell.
+     * @return The species id, or -1 if there is no plant.
+     */
+    public int getPlantSpeciesId(int cell)
+    {
+        return buffer(cell).get(offset(cell) + PLANT_SPECIES) - 1;
+    }
+
+    /**
+     * Put an organism in one slot of a cell, giving up the handle of
+     * any organism already there. The new organism's handle is taken
+     * first, so an organism written back to its own slot keeps it.
+     * @param cell The index of the cell.
+     * @param handleOffset The offset of the slot's handle.
+     * @param speciesOffset The offset of the slot's species id.
+     * @param organism The organism, or null to empty the slot.
+     */
+    private void set(int cell, int handleOffset, int speciesOffset, Organism organism)
+    {
+        ByteBuffer buffer = buffer(cell);
+        int offset = offset(cell);
+        int old = buffer.getInt(offset + handleOffset);
+        if(organism == null) {
+            buffer.putInt(offset + handleOffset, 0);
+            buffer.put(offset + speciesOffset, (byte) 0);
+        }
+        else {
+            buffer.putInt(offset + handleOffset, handles.acquire(organism));
+            buffer.put(offset + speciesOffset, (byte) (organism.getSpecies().id() + 1));
+        }
+        if(old != 0) {
+            handles.release(old);
+        }
+    }
+
+    /**
+     * @return The number of handles in use, i.e. the number of distinct
+     *         organisms held by this storage and its partners.
+     */
+    public int getHandleCount()
+    {
+        return handles.nextHandle - 1 - handles.freeCount;
+    }
+
+    private ByteBuffer buffer(int cell)
+    {
+        return buffers[cell >>> CELLS_SHIFT];
+    }
+
+    private static int offset(int cell)
+    {
+        return (cell & CELLS_MASK) * CELL_BYTES;
+    }
+
+    private static int bufferCount(long cells)
+    {
+        return (int) ((cells + CELLS_MASK) >> CELLS_SHIFT);
+    }
+
+    /**
+     * @param cells The number of cells in the field.
+     * @param index The index of a buffer.
+     * @return The size of that buffer in bytes.
+     */
+    private static int bufferBytes(long cells, int index)
+    {
+        long first = (long) index << CELLS_SHIFT;
+        return (int) Math.min(CELLS_PER_BUFFER, cells - first) * CELL_BYTES;
+    }
+
+    /**
+     * The handles of the organisms of a storage and its partners. Each
+     * handle counts the cell records that refer to it, and is released
+     * when there are none.
+     */
+    private static class Handles
+    {
+        // The organisms, indexed by handle. Handle 0 is never used.
+        private Organism[] organisms = new Organism[64];
+        // The number of records referring to each handle.
+        private int[] uses = new int[64];
+        // Handles that have been released and can be reused.
+        private int[] freeHandles = new int[64];
+        // The number of entries in use in freeHandles.
+        private int freeCount;
+        // The next handle that has never been used.
+        private int nextHandle = 1;
+
+        /**
+         * Take a use of an organism's handle, giving it one if it has
+         * none in this table.
+         * @param organism The organism.
+         * @return The organism's handle.
+         */
+        int acquire(Organism organism)
+        {
+            int handle = organism.getStorageHandle();
+            if(handle <= 0 || handle >= nextHandle || organisms[handle] != organism) {
+                handle = newHandle(organism);
+                organism.setStorageHandle(handle);
+            }
+            uses[handle]++;
+            return handle;
+        }
+
+        /**
+         * Give up a use of a handle, releasing it if it was the last.
+         * @param handle The handle.
+         */
+        void release(int handle)
+        {
+            if(--uses[handle] > 0) {
+                return;
+            }
+            organisms[handle] = null;
+            if(freeCount == freeHandles.length) {
+                freeHandles = Arrays.copyOf(freeHandles, freeHandles.length * 2);
+            }
+            freeHandles[freeCount++] = handle;
+        }
+
+        /**
+         * @param organism The organism to be given a handle.
+         * @return The new handle, with no uses yet.
+         */
+        private int newHandle(Organism organism)
+        {
+            int handle;
+            if(freeCount > 0) {
+                handle = freeHandles[--freeCount];
+            }
+            else {
+                if(nextHandle == organisms.length) {
+                    organisms = Arrays.copyOf(organisms, organisms.length * 2);
+                    uses = Arrays.copyOf(uses, uses.length * 2);
+                }
+                handle = nextHandle++;
+            }
+            organisms[handle] = organism;
+            return handle;
+        }
+    }
+}
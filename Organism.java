@@ -11,6 +11,14 @@ public abstract class Organism
     private boolean alive;
     // The organism's position.
     private Location location;
+    // The last two registries the organism was added to, and its slot
+    // in each. An organism is in at most two at once: those of the
+    // current and next states of its field.
+    private EntityRegistry<?> firstRegistry, secondRegistry;
+    private int firstSlot, secondSlot;
+    // The organism's handle in the off-heap storage of its field, or
+    // zero. The storage checks that it is still the organism's.
+    private int storageHandle;
 
     /**
      * Constructor for objects of class Organism
@@ -21,6 +29,12 @@ public abstract class Organism
         this.location = location;
     }
     
+    /**
+     * Return the species of the organism.
+     * @return The organism's species.
+     */
+    abstract public Species getSpecies();
+
     /**
      * Check whether the organism is alive or not.
      * @return true if the organism is still alive.
@@ -56,4 +70,69 @@ public abstract class Organism
     {
         this.location = location;
     }
+
+    /**
+     * Return the organism's slot in a registry.
+     * @param registry The registry.
+     * @return The slot, or -1 if the organism has no slot there.
+     */
+    int getSlot(EntityRegistry<?> registry)
+    {
+        if(registry == firstRegistry) {
+            return firstSlot;
+        }
+        else if(registry == secondRegistry) {
+            return secondSlot;
+        }
+        else {
+            return -1;
+        }
+    }
+
+    /**
+     * Set the organism's slot in a registry. A new registry takes the
+     * place of one that no longer holds the organism, or else of the
+     * one it was added to first.
+     * @param registry The registry.
+     * @param slot The new slot.
+     */
+    void setSlot(EntityRegistry<?> registry, int slot)
+    {
+        if(registry == firstRegistry) {
+            firstSlot = slot;
+        }
+        else if(registry == secondRegistry) {
+            secondSlot = slot;
+        }
+        else if(secondRegistry != null && secondRegistry.holds(this, secondSlot)
+                && (firstRegistry == null || !firstRegistry.holds(this, firstSlot))) {
+            firstRegistry = registry;
+            firstSlot = slot;
+        }
+        else {
+            if(firstRegistry != null) {
+                secondRegistry = firstRegistry;
+                secondSlot = firstSlot;
+            }
+            firstRegistry = registry;
+            firstSlot = slot;
+        }
+    }
+
+    /**
+     * @return The organism's last handle in off-heap storage, or zero.
+     */
+    int getStorageHandle()
+    {
+        return storageHandle;
+    }
+
+    /**
+     * Remember the organism's handle in off-heap storage.
+     * @param handle The handle.
+     */
+    void setStorageHandle(int handle)
+    {
+        storageHandle = handle;
+    }
 }
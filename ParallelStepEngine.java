@@ -0,0 +1,32 @@
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * A step engine that makes the animals' proposals on all available
+ * cores. Proposals only read the current field, so they can be made in
+ * any order; they are then resolved on one thread exactly as by
+ * SequentialStepEngine, so conflicts over cells and food are always
+ * settled in the order of the field's animals. Plants are carried over
+ * on all cores too, when the field's storage allows it.
+ *
+ * @author Aryan Sanvee Vijayan
+ * @version 24/02/2025
+ */
+public class ParallelStepEngine extends SequentialStepEngine
+{
+    @Override
+    protected void proposeAll(List<Animal> animals, Proposal[] proposals,
+                              Field field, Time time, Weather weather)
+    {
+        IntStream.range(0, animals.size()).parallel().forEach(
+            i -> proposals[i] = animals.get(i).propose(field, time, weather));
+    }
+
+    @Override
+    protected void actPlants(Field field, Field nextFieldState, Time time)
+    {
+        boolean parallel = field.getStorageType().supportsConcurrentWrites();
+        PlantSchedule.step(field, nextFieldState, time, parallel ? ForkJoinPool.commonPool() : null);
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Enumeration class Parameter - the constants of the simulation that
+ * can be varied from run to run, with their default values. The
+ * species and Simulator read them through Parameters.
+ *
+ * @author Alexander Sukhin
+ * @version 27/02/2025
+ */
+public enum Parameter
+{
+    // Deer.
+    DEER_BREEDING_AGE(15, Kind.COUNT),
+    DEER_MAX_AGE(175, Kind.POSITIVE_COUNT),
+    DEER_BREEDING_PROBABILITY(0.7, Kind.PROBABILITY),
+    DEER_MAX_LITTER_SIZE(3, Kind.POSITIVE_COUNT),
+    DEER_NIGHT_MOVE_PROBABILITY(0.6, Kind.PROBABILITY),
+    // Armadillo.
+    ARMADILLO_BREEDING_AGE(10, Kind.COUNT),
+    ARMADILLO_MAX_AGE(30, Kind.POSITIVE_COUNT),
+    ARMADILLO_BREEDING_PROBABILITY(0.7, Kind.PROBABILITY),
+    ARMADILLO_MAX_LITTER_SIZE(5, Kind.POSITIVE_COUNT),
+    ARMADILLO_NIGHT_MOVE_PROBABILITY(0.5, Kind.PROBABILITY),
+    // Jaguar. Jaguars are primarily nocturnal, with low hunting during day.
+    JAGUAR_BREEDING_AGE(15, Kind.COUNT),
+    JAGUAR_MAX_AGE(180, Kind.POSITIVE_COUNT),
+    JAGUAR_BREEDING_PROBABILITY(0.08, Kind.PROBABILITY),
+    JAGUAR_MAX_LITTER_SIZE(2, Kind.POSITIVE_COUNT),
+    JAGUAR_DAY_HUNT_PROBABILITY(0.25, Kind.PROBABILITY),
+    JAGUAR_NIGHT_HUNT_PROBABILITY(0.9, Kind.PROBABILITY),
+    // Ocelot. Ocelots are nocturnal but are somewhat active during day as well.
+    OCELOT_BREEDING_AGE(15, Kind.COUNT),
+    OCELOT_MAX_AGE(150, Kind.POSITIVE_COUNT),
+    OCELOT_BREEDING_PROBABILITY(0.3, Kind.PROBABILITY),
+    OCELOT_MAX_LITTER_SIZE(5, Kind.POSITIVE_COUNT),
+    OCELOT_DAY_HUNT_PROBABILITY(0.5, Kind.PROBABILITY),
+    OCELOT_NIGHT_HUNT_PROBABILITY(0.75, Kind.PROBABILITY),
+    // Snake. Snakes are mostly diurnal (active at day).
+    SNAKE_BREEDING_AGE(15, Kind.COUNT),
+    SNAKE_MAX_AGE(250, Kind.POSITIVE_COUNT),
+    SNAKE_BREEDING_PROBABILITY(0.35, Kind.PROBABILITY),
+    SNAKE_MAX_LITTER_SIZE(30, Kind.POSITIVE_COUNT),
+    SNAKE_DAY_HUNT_PROBABILITY(0.9, Kind.PROBABILITY),
+    SNAKE_NIGHT_HUNT_PROBABILITY(0.25, Kind.PROBABILITY),
+    // Hunger. A predator of armadillos, or of deer, survives a random
+    // number of hungry steps below its bound.
+    PREY_FULL_STEPS(10, Kind.COUNT),
+    PREY_HUNGRY_STEPS(20, Kind.COUNT),
+    PREDATOR_FULL_STEPS(5, Kind.COUNT),
+    ARMADILLO_HUNGER_BOUND(10, Kind.POSITIVE_COUNT),
+    DEER_HUNGER_BOUND(50, Kind.POSITIVE_COUNT),
+    // Disease.
+    INFECTION_PROBABILITY(0.005, Kind.PROBABILITY),
+    INFECTION_DEATH_PROBABILITY(0.5, Kind.PROBABILITY),
+    // Plants.
+    PHASE_2_AGE(10, Kind.POSITIVE_COUNT),
+    PHASE_3_AGE(30, Kind.POSITIVE_COUNT),
+    // The starting population.
+    DEER_CREATION_PROBABILITY(0.05, Kind.PROBABILITY),
+    JAGUAR_CREATION_PROBABILITY(0.01, Kind.PROBABILITY),
+    SNAKE_CREATION_PROBABILITY(0.01, Kind.PROBABILITY),
+    OCELOT_CREATION_PROBABILITY(0.01, Kind.PROBABILITY),
+    ARMADILLO_CREATION_PROBABILITY(0.05, Kind.PROBABILITY),
+    PLANT_CREATION_PROBABILITY(0.02, Kind.PROBABILITY),
+    // The cycles of day and night, and of the weather.
+    DAY_STEPS(5, Kind.POSITIVE_COUNT),
+    WEATHER_STEPS(10, Kind.POSITIVE_COUNT);
+
+    /**
+     * The kinds of value a parameter takes.
+     */
+    public enum Kind
+    {
+        // A probability, from 0 to 1.
+        PROBABILITY,
+        // A whole number of at least 0.
+        COUNT,
+        // A whole number of at least 1.
+        POSITIVE_COUNT
+    }
+
+    // The value used when none is given.
+    private final double defaultValue;
+    // The kind of value the parameter takes.
+    private final Kind kind;
+
+    /**
+     * Initialise with the default value and kind.
+     * @param defaultValue The default value.
+     * @param kind The kind of value.
+     */
+    Parameter(double defaultValue, Kind kind)
+    {
+        this.defaultValue = defaultValue;
+        this.kind = kind;
+    }
+
+    /**
+     * @return The value used when none is given.
+     */
+    public double getDefault()
+    {
+        return defaultValue;
+    }
+
+    /**
+     * @return The kind of value the parameter takes.
+     */
+    public Kind getKind()
+    {
+        return kind;
+    }
+
+    /**
+     * Check that a value is allowed for this parameter, rounding it to
+     * a whole number if the parameter is a count.
+     * @param value The value.
+     * @return The value, rounded if need be.
+     * @throws IllegalArgumentException If the value is out of range.
+     */
+    public double check(double value)
+    {
+        if(kind != Kind.PROBABILITY) {
+            value = Math.rint(value);
+        }
+        double minimum = kind == Kind.POSITIVE_COUNT ? 1 : 0;
+        double maximum = kind == Kind.PROBABILITY ? 1 : Integer.MAX_VALUE;
+        if(!(value >= minimum && value <= maximum)) {
+            throw new IllegalArgumentException(name() + " must be from " + minimum + " to "
+                                               + maximum + ": " + value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,92 @@
+import java.util.StringJoiner;
+
+/**
+ * A set of values for the parameters of a simulation. A Parameters
+ * object cannot be changed; with() gives a copy with one value
+ * replaced, so one set can be shared by any number of animals and
+ * simulations, on any number of threads.
+ *
+ * @author Alexander Sukhin
+ * @version 27/02/2025
+ */
+public class Parameters
+{
+    // The default value of every parameter.
+    public static final Parameters DEFAULTS = new Parameters(defaultValues());
+
+    // The value of each parameter, indexed by ordinal.
+    private final double[] values;
+
+    /**
+     * Create a set of values.
+     * @param values The value of each parameter, by ordinal.
+     */
+    private Parameters(double[] values)
+    {
+        this.values = values;
+    }
+
+    /**
+     * Return the value of a parameter.
+     * @param parameter The parameter.
+     * @return The value.
+     */
+    public double get(Parameter parameter)
+    {
+        return values[parameter.ordinal()];
+    }
+
+    /**
+     * Return the value of a parameter that is a count.
+     * @param parameter The parameter.
+     * @return The value.
+     */
+    public int getInt(Parameter parameter)
+    {
+        return (int) values[parameter.ordinal()];
+    }
+
+    /**
+     * Return a copy of these values with one of them replaced.
+     * @param parameter The parameter.
+     * @param value The new value, which is rounded if the parameter is
+     *              a count.
+     * @return The new set of values.
+     * @throws IllegalArgumentException If the value is out of range.
+     */
+    public Parameters with(Parameter parameter, double value)
+    {
+        double[] newValues = values.clone();
+        newValues[parameter.ordinal()] = parameter.check(value);
+        return new Parameters(newValues);
+    }
+
+    /**
+     * @return The parameters whose values differ from the defaults,
+     *         with their values.
+     */
+    @Override
+    public String toString()
+    {
+        StringJoiner joiner = new StringJoiner(", ", "Parameters{", "}");
+        for(Parameter parameter : Parameter.values()) {
+            if(get(parameter) != parameter.getDefault()) {
+                joiner.add(parameter + "=" + get(parameter));
+            }
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * @return The default value of every parameter, by ordinal.
+     */
+    private static double[] defaultValues()
+    {
+        Parameter[] parameters = Parameter.values();
+        double[] values = new double[parameters.length];
+        for(Parameter parameter : parameters) {
+            values[parameter.ordinal()] = parameter.getDefault();
+        }
+        return values;
+    }
+}
@@ -1,7 +1,8 @@
 
 /**
  * This class represents an abstraction of core plants
- * and leaf plants.
+ * and leaf plants. Plants do not act at every step: PlantSchedule
+ * carries them over and wakes core plants when they change.
  *
  * @author Alexander Sukhin
  * @version 13/02/2025
@@ -15,11 +16,4 @@ public abstract class Plant extends Organism
     {
         super(location);
     }
-
-    /**
-     * Act.
-     * @param currentField The current state of the field.
-     * @param nextFieldState The new state being built.
-     */
-    abstract public void act(Field currentField, Field nextFieldState, Time time);
 }
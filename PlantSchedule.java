@@ -0,0 +1,192 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Steps the plants of a field. Most plants have nothing to do in a
+ * given step: a leaf cell just carries over until it is eaten, and a
+ * core plant only does something on the days it changes phase or
+ * regrows after losing its last leaf. So rather than letting every
+ * plant act, the living plants of the current field are carried over
+ * to the next in bulk, and a timer wheel wakes each core plant only on
+ * the day its next change is due.
+ *
+ * The carry-over is split into bands of cells, which may be processed
+ * on several threads since each writes only its own cells. The core
+ * plants that wake are then run one at a time in the order they were
+ * scheduled: the leaves they grow can overlap, and running them in a
+ * fixed order keeps the result the same however many threads are used.
+ *
+ * A schedule belongs to the current state of a field and is handed on
+ * to the next state at each step. A field without one, such as a newly
+ * populated field, is given a schedule which takes its core plants to
+ * have just sprouted.
+ *
+ * @author Alexander Sukhin
+ * @version 26/02/2025
+ */
+public class PlantSchedule
+{
+    // The number of words of the occupancy bitsets in a band.
+    private static final int BAND_WORDS = 256;
+    // The number of rings of the wheel. One ring of 64 slots is more
+    // than the longest wait of a core plant between changes.
+    private static final int WHEEL_RINGS = 1;
+
+    // The core plants, by the day of their next wake-up. Day zero is
+    // never collected; the first day step collects day one.
+    private final HierarchicalTimerWheel<CorePlant> wheel = new HierarchicalTimerWheel<>(WHEEL_RINGS, 0);
+    // The number of day steps so far. Core plants grow by one each day.
+    private long day;
+    // The core plants woken in the current step.
+    private final List<CorePlant> woken = new ArrayList<>();
+    // The changes each band makes to the next field, and the core
+    // plants each band finds have lost their last leaf.
+    private FieldShard[] shards = new FieldShard[0];
+    private List<List<CorePlant>> bare = new ArrayList<>();
+
+    /**
+     * Create a schedule for the plants of a field, taking every core
+     * plant to have just sprouted.
+     * @param field The field.
+     */
+    private PlantSchedule(Field field)
+    {
+        for(Plant plant : field.getPlants()) {
+            if(plant instanceof CorePlant core) {
+                schedule(core, core.nextWakeDay(day));
+            }
+        }
+    }
+
+    /**
+     * Build the plants of the next state of a field from the current
+     * one, and hand the current state's schedule on to the next.
+     * @param field The current state of the field.
+     * @param nextFieldState The new state being built.
+     * @param time The time of day/night.
+     * @param pool The pool to carry plants over in, or null to do so
+     *             on the calling thread.
+     */
+    public static void step(Field field, Field nextFieldState, Time time, ForkJoinPool pool)
+    {
+        PlantSchedule schedule = field.getPlantSchedule();
+        if(schedule == null) {
+            schedule = new PlantSchedule(field);
+        }
+        schedule.advance(field, nextFieldState, time, pool);
+        nextFieldState.setPlantSchedule(schedule);
+    }
+
+    /**
+     * Carry the living plants over and wake the core plants due today.
+     * @param field The current state of the field.
+     * @param nextFieldState The new state being built.
+     * @param time The time of day/night.
+     * @param pool The pool to carry plants over in, or null.
+     */
+    private void advance(Field field, Field nextFieldState, Time time, ForkJoinPool pool)
+    {
+        if(time == Time.DAY) {
+            day++;
+        }
+        CellBits bits = field.getPlantOccupancy();
+        int bandCount = (bits.wordCount() + BAND_WORDS - 1) / BAND_WORDS;
+        prepareBands(bandCount);
+        if(pool != null && bandCount > 1) {
+            nextFieldState.beginSharding();
+            pool.submit(() -> IntStream.range(0, bandCount).parallel().forEach(band -> {
+                nextFieldState.useShard(shards[band]);
+                carryOver(band, bits, field, nextFieldState);
+                nextFieldState.useShard(null);
+            })).join();
+            nextFieldState.endSharding(shards);
+        }
+        else {
+            for(int band = 0; band < bandCount; band++) {
+                carryOver(band, bits, field, nextFieldState);
+            }
+        }
+
+        // A core plant that has lost its last leaf regrows on the next
+        // day, counting today if it is day.
+        long regrowDay = time == Time.DAY ? day : day + 1;
+        for(int band = 0; band < bandCount; band++) {
+            for(CorePlant core : bare.get(band)) {
+                schedule(core, regrowDay);
+            }
+            bare.get(band).clear();
+        }
+
+        if(time == Time.DAY) {
+            wheel.poll(woken);
+            for(CorePlant core : woken) {
+                if(core.getWakeDay() == day) {
+                    core.setWakeDay(CorePlant.NEVER);
+                    // A plant overgrown by another's leaves is gone.
+                    if(nextFieldState.getPlantAt(core.getLocation()) == core) {
+                        schedule(core, core.wake(day, nextFieldState));
+                    }
+                }
+            }
+            woken.clear();
+        }
+    }
+
+    /**
+     * Place the living plants of a band of cells in the next field,
+     * noting the core plants whose last leaf has been eaten.
+     * @param band The index of the band.
+     * @param bits The plant occupancy of the current field.
+     * @param field The current state of the field.
+     * @param nextFieldState The new state being built.
+     */
+    private void carryOver(int band, CellBits bits, Field field, Field nextFieldState)
+    {
+        List<CorePlant> bareCores = bare.get(band);
+        int start = band * BAND_WORDS * 64;
+        int end = (band + 1) * BAND_WORDS * 64;
+        for(int cell = bits.nextSetBit(start, end); cell >= 0; cell = bits.nextSetBit(cell + 1, end)) {
+            Plant plant = field.getPlantAt(cell);
+            if(plant.isAlive()) {
+                nextFieldState.placePlant(plant, plant.getLocation());
+            }
+            else if(plant instanceof LeafCell leafCell && leafCell.getParent().isBare()) {
+                bareCores.add(leafCell.getParent());
+            }
+        }
+    }
+
+    /**
+     * Make sure there is a shard and a list of bare core plants for
+     * each band.
+     * @param bandCount The number of bands.
+     */
+    private void prepareBands(int bandCount)
+    {
+        if(shards.length < bandCount) {
+            shards = new FieldShard[bandCount];
+            for(int band = 0; band < bandCount; band++) {
+                shards[band] = new FieldShard();
+            }
+        }
+        while(bare.size() < bandCount) {
+            bare.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Wake a core plant on the given day, unless it is already due to
+     * wake by then.
+     * @param core The core plant.
+     * @param wakeDay The day, or CorePlant.NEVER.
+     */
+    private void schedule(CorePlant core, long wakeDay)
+    {
+        if(wakeDay < core.getWakeDay()) {
+            core.setWakeDay(wakeDay);
+            wheel.schedule(core, wakeDay);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The populations of one run of a simulation, recorded after every
+ * step: the number of animals of each species, the number of infected
+ * animals and the number of plants. Step 0 is the populated field.
+ *
+ * @author Alexander Sukhin
+ * @version 27/02/2025
+ */
+public class PopulationSeries
+{
+    // The seed of the run.
+    private final long seed;
+    // The number of animals of each species at each step, indexed by
+    // step and then by species id.
+    private int[][] counts;
+    // The number of infected animals and of plants at each step.
+    private int[] infected;
+    private int[] plants;
+    // The number of steps recorded.
+    private int size;
+
+    /**
+     * Create an empty series.
+     * @param seed The seed of the run.
+     * @param steps The number of steps expected, after step 0.
+     */
+    public PopulationSeries(long seed, int steps)
+    {
+        this.seed = seed;
+        counts = new int[steps + 1][];
+        infected = new int[steps + 1];
+        plants = new int[steps + 1];
+    }
+
+    /**
+     * Record the populations of a field as the next step.
+     * @param field The field.
+     */
+    public void record(Field field)
+    {
+        if(size == counts.length) {
+            counts = Arrays.copyOf(counts, size * 2);
+            infected = Arrays.copyOf(infected, size * 2);
+            plants = Arrays.copyOf(plants, size * 2);
+        }
+        int[] stepCounts = new int[Species.COUNT];
+        for(Species species : Species.values()) {
+            if(species.isAnimal()) {
+                stepCounts[species.id()] = field.getCount(species);
+            }
+        }
+        counts[size] = stepCounts;
+        infected[size] = field.infectedCount();
+        plants[size] = field.getPlants().size();
+        size++;
+    }
+
+    /**
+     * @return The seed of the run.
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * @return The number of steps recorded, counting step 0.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Return the number of animals of a species at a step.
+     * @param step The step, from 0 to size()-1.
+     * @param species The species, which must be an animal.
+     * @return The number of animals.
+     */
+    public int getCount(int step, Species species)
+    {
+        checkStep(step);
+        return counts[step][species.id()];
+    }
+
+    /**
+     * @param step The step, from 0 to size()-1.
+     * @return The number of infected animals at the step.
+     */
+    public int getInfected(int step)
+    {
+        checkStep(step);
+        return infected[step];
+    }
+
+    /**
+     * @param step The step, from 0 to size()-1.
+     * @return The number of plants at the step.
+     */
+    public int getPlants(int step)
+    {
+        checkStep(step);
+        return plants[step];
+    }
+
+    /**
+     * Write the series as CSV, one row per step, with a header row.
+     * @param out Where to write the series.
+     * @throws IOException If the series cannot be written.
+     */
+    public void write(Writer out) throws IOException
+    {
+        StringBuilder header = new StringBuilder("step");
+        for(Species species : Species.values()) {
+            if(species.isAnimal()) {
+                header.append(',').append(species.name().toLowerCase(Locale.ROOT));
+            }
+        }
+        out.write(header.append(",infected,plants\n").toString());
+        for(int step = 0; step < size; step++) {
+            StringBuilder row = new StringBuilder().append(step);
+            for(Species species : Species.values()) {
+                if(species.isAnimal()) {
+                    row.append(',').append(counts[step][species.id()]);
+                }
+            }
+            row.append(',').append(infected[step]).append(',').append(plants[step]);
+            out.write(row.append('\n').toString());
+        }
+    }
+
+    /**
+     * Check that a step has been recorded.
+     * @param step The step.
+     */
+    private void checkStep(int step)
+    {
+        if(step < 0 || step >= size) {
+            throw new IndexOutOfBoundsException(step);
+        }
+    }
+}
@@ -1,6 +1,4 @@
-import java.util.List;
-import java.util.Iterator;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * A general model of a predator in the simulation.
@@ -10,10 +8,6 @@ import java.util.Random;
  */
 public abstract class Predator extends Animal
 {
-    // Represents whether the predator is full or hungry.
-    private boolean isFull;
-    // Tracks how long the predator has been hungry or full (in steps).
-    private int hungerTimer;
     // The number of steps before the predator goes hungry.
     private int FULL_STEPS;
     // The number of steps before the predator dies of hunger.
@@ -23,163 +17,95 @@ public abstract class Predator extends Animal
      * Create a predator. A predator can be created as a new born (age zero
      * and not hungry) or with a random age and food level.
      * 
-     * @param prey The class of the prey of the predator.
+     * @param parameters The parameters of the simulation.
      * @param location The location within the field.
+     * @param random The predator's own stream of random numbers.
      */
-    public Predator(Location location, Class<?> prey)
+    public Predator(Parameters parameters, Location location, SplittableRandom random)
     {
-        super(location);
+        super(parameters, location, random);
         
-        isFull = false;
-        hungerTimer = 0;
-        
-        if (prey == Armadillo.class) {
-            FULL_STEPS = 5;
-            HUNGRY_STEPS = randInt(10);
+        if (getSpecies().eats(Species.ARMADILLO)) {
+            FULL_STEPS = parameters.getInt(Parameter.PREDATOR_FULL_STEPS);
+            HUNGRY_STEPS = randInt(parameters.getInt(Parameter.ARMADILLO_HUNGER_BOUND));
         }
-        else if (prey == Deer.class) {
-            FULL_STEPS = 5;
-            HUNGRY_STEPS = randInt(50);
+        else if (getSpecies().eats(Species.DEER)) {
+            FULL_STEPS = parameters.getInt(Parameter.PREDATOR_FULL_STEPS);
+            HUNGRY_STEPS = randInt(parameters.getInt(Parameter.DEER_HUNGER_BOUND));
         }
+        makeHungry();
     }
 
     /**
      * This is what the predator does most of the time: it hunts for
-     * armadillos. In the process, it might breed, die of hunger,
-     * or die of old age.
+     * prey. In the process, it might breed.
      * @param currentField The field currently occupied.
-     * @param nextFieldState The updated field.
+     * @param time The time of day/night.
+     * @param proposal The proposal to fill in.
      */
-    public void act(Field currentField, Field nextFieldState, Time time, Weather weather)
+    protected void proposeAction(Field currentField, Time time, Proposal proposal)
     {
-        incrementAge();
-        incrementHunger();
-        if(isAlive()) {
-            List<Location> freeLocations =
-                nextFieldState.getFreeAdjacentLocations(getLocation());
-            
-            // Check if the predator is infected in the next field state.
-            checkIfInfected(nextFieldState); 
-
-            if (isInfected() && randDouble() < 0.5) {
-                // 50% chance of dying due to infection.
-                setDead();
-            }
-            // if predator can act considering weather circumstances.
-            else if (canAct(weather)) {
-                if(! freeLocations.isEmpty()) {
-                    // Try to breed.
-                    giveBirth(nextFieldState, freeLocations);
-                }
-                // Move towards a source of food if found.
-                Location nextLocation = findFood(currentField, time);
-                if(nextLocation == null && ! freeLocations.isEmpty()) {
-                    // No food found - try to move to a free location.
-                    nextLocation = freeLocations.remove(0);
-                }
-                // See if it was possible to move.`
-                if(nextLocation != null) {
-                    setLocation(nextLocation);
-                    nextFieldState.placeAnimal(this, nextLocation);
-                }
-                else {
-                    // Overcrowding.
-                    setDead();
-                }
-            }
-            else {
-                // let the predator stay in the same place.
-                nextFieldState.placeAnimal(this, getLocation());
-            }
-        }
+        proposal.births = breed();
+        // Move towards a source of food if found.
+        findFood(currentField, time, proposal);
     }
 
     /**
-     * Make this predator more hungry. This could result in the predator's death.
+     * Eat the proposed prey if it is still alive, and move into its
+     * cell; otherwise move to a free location.
+     * @param proposal The proposal made by this predator.
+     * @param nextFieldState The updated field, which the prey may
+     *                       already have moved into.
+     * @return The chosen cell, or Field.NO_CELL if there is none.
      */
-    private void incrementHunger()
+    protected int chooseCell(Proposal proposal, Field nextFieldState)
     {
-        if (isFull) {
-            hungerTimer++;
-            if (hungerTimer >= FULL_STEPS) {
-                isFull = false;
-                hungerTimer = 0;
-            }
-        } else {
-            hungerTimer++;
-            if (hungerTimer >= HUNGRY_STEPS) {
-                setDead();
-                hungerTimer = 0;
-            }
+        if(proposal.food instanceof Animal animal && animal.isAlive()) {
+            nextFieldState.removeAnimal(animal);
+            animal.setDead();
+            feed();
+            return proposal.foodCell;
         }
+        // No food found - try to move to a free location.
+        return nextFieldState.getFreeAdjacentCell(proposal.cell, proposal.order);
     }
 
     /**
-     * Look for prey adjacent to the current location.
-     * Only the first live prey is eaten.
-     * @param field The field currently occupied.
-     * @return Where food was found, or null if it wasn't.
+     * @return The number of steps the predator stays full after eating.
      */
-    private Location findFood(Field field, Time time)
+    protected int getFullSteps()
     {
-        List<Location> adjacent = field.getAdjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
-        Location foodLocation = null;
-        while(foodLocation == null && it.hasNext()) {
-            Location loc = it.next();
-            Animal animal = field.getAnimalAt(loc);
-            if(isPrey(animal) && huntSuccess(time)) {
-                if(animal instanceof Armadillo armadillo) {
-                    armadillo.setDead();
-                    hungerTimer = 0;
-                    isFull = true;
-                    foodLocation = loc;
-                }
-                else if(animal instanceof Deer deer) {
-                    deer.setDead();
-                    hungerTimer = 0;
-                    isFull = true;
-                    foodLocation = loc;
-                }
-            }
-        }
-        return foodLocation;
+        return FULL_STEPS;
     }
 
     /**
-     * Check whether this predator is to give birth at this step.
-     * New births will be made into free adjacent locations.
-     * @param freeLocations The locations that are free in the current field.
+     * A hungry predator starves after at least one step.
+     * @return The number of steps after eating at which the predator
+     *         dies of hunger.
      */
-    protected void giveBirth(Field nextFieldState, List<Location> freeLocations)
+    protected int getStarvationSteps()
     {
-        // New armadillos are born into adjacent locations.
-        // Get a list of adjacent free locations.
-        int births = breed();
-        if(births > 0) {
-            for (int b = 0; b < births && !freeLocations.isEmpty(); b++) {
-                Location loc = freeLocations.remove(0);
-                Animal young = offspring(loc);
-                nextFieldState.placeAnimal(young, loc);
-            }
-        }
+        return FULL_STEPS + Math.max(HUNGRY_STEPS, 1);
     }
 
     /**
-     * Generate a number representing the number of births,
-     * if it can breed.
-     * @return The number of births (may be zero).
+     * Look for prey adjacent to the current location.
+     * Only the first prey successfully hunted is chosen.
+     * @param field The field currently occupied.
+     * @param time The time of day/night.
+     * @param proposal The proposal to record the prey in.
      */
-    protected int breed()
+    private void findFood(Field field, Time time, Proposal proposal)
     {
-        int births;
-        if(breedSuccess()) {
-            births = birthNumber();
-        }
-        else {
-            births = 0;
+        int[] order = field.randomNeighbourOrder(getRandom());
+        for(int i = 0; proposal.food == null && i < order.length; i++) {
+            int next = field.getNeighbour(proposal.cell, order[i]);
+            Animal animal = (next != Field.NO_CELL) ? field.getAnimalAt(next) : null;
+            if(isPrey(animal) && huntSuccess(time)) {
+                proposal.food = animal;
+                proposal.foodCell = next;
+            }
         }
-        return births;
     }
 
     /**
@@ -187,37 +113,15 @@ public abstract class Predator extends Animal
      * @param animal The animal to check if its a prey.
      * @return true, if the animal is a prey, otherwise false.
      */
-    abstract protected boolean isPrey(Animal animal);
-
-    /**
-     * Create a new predator as offspring.
-     * @param loc The location off the new offspring.
-     * @return The offspring.
-     */
-    abstract protected Animal offspring(Location loc);
-
-    /**
-     * A predator can breed successfully if it has reached the breeding age,
-     * and luck is on its side.
-     * @return true if the prey breeds successfully, false otherwise.
-     */
-    abstract protected boolean breedSuccess();
+    protected boolean isPrey(Animal animal)
+    {
+        return animal != null && getSpecies().eats(animal.getSpecies());
+    }
 
-    /**
-     * Generate number of offspring if breeding is successful.
-     * @return Number of offspring.
-     */
-    abstract protected int birthNumber();
-    
     /**
      * Calculate whether a hunt is successful.
      * @param time The time of day/night.
      * @return true if the hunt is successful, false otherwise.
      */
     abstract protected boolean huntSuccess(Time time);
-    
-    /**
-     *  Check if the predator is too old to live.
-     */
-    abstract protected void checkIfTooOld();
 }
@@ -1,6 +1,5 @@
-import java.util.List;
-import java.util.Iterator;
-import java.util.Random;
+import java.util.SplittableRandom;
+
 /**
  * A general model of a prey in the simulation.
  *
@@ -9,202 +8,120 @@ import java.util.Random;
  */
 public abstract class Prey extends Animal
 {
-    // Represents whether the prey is full or hungry.
-    private boolean isFull;
-    // Tracks how long the prey has been hungry or full (in steps).
-    private int hungerTimer;
-    // The number of steps before the prey goes hungry.
-    private static final int FULL_STEPS = 10;
-    // The number of steps before the prey dies of hunger.
-    private static final int HUNGRY_STEPS = 20;
-
     /**
      * Constructor for objects of class Prey
+     * @param parameters The parameters of the simulation.
      * @param location The prey's location.
+     * @param random The prey's own stream of random numbers.
      */
-    public Prey(Location location)
+    public Prey(Parameters parameters, Location location, SplittableRandom random)
     {
         // initialise instance variables
-        super(location);
-        isFull = true;
-        hungerTimer = 0;
+        super(parameters, location, random);
     }
 
     /**
      * This is what the prey does most of the time - it runs 
-     * around. Sometimes it will breed or die of old age.
+     * around. Sometimes it will breed or look for food.
      * @param currentField The field occupied.
-     * @param nextFieldState The updated field.
+     * @param time The time of day/night.
+     * @param proposal The proposal to fill in.
      */
-    public void act(Field currentField, Field nextFieldState, Time time, Weather weather)
+    protected void proposeAction(Field currentField, Time time, Proposal proposal)
     {
-        incrementAge();
-        incrementHunger();  
-        if(isAlive()) {
-            List<Location> freeLocations = nextFieldState.getFreeAdjacentLocations(getLocation());
-            
-            //Check if the prey is infected in the next field state.
-            checkIfInfected(nextFieldState); 
-
-            if (isInfected() && randDouble() < 0.5) {
-                // 50% chance of dying due to infection.
-                setDead();
-            }
-            // if prey can act considering weather circumstances.
-            else if (canAct(weather)) {
-                if(!freeLocations.isEmpty()) {
-                    // try to breed.
-                    giveBirth(nextFieldState, freeLocations);
-                }
-
-                Location nextLocation = null;
-                // Move towards a sourch of food if found.
-                if (!isFull) {
-                    Location plantLocation = findFood(currentField, time);
-                    if (plantLocation != null) {
-                        nextLocation = plantLocation;
-                    }
-                }
-
-                // Try to move into a free location.
-                if(nextLocation == null && !freeLocations.isEmpty() && canMove(time)) {
-                    nextLocation = freeLocations.get(0);
-                } 
-                else if (!freeLocations.isEmpty()) {
-                    nextLocation = getLocation();
-                } 
-
-                if (nextLocation != null) {
-                    setLocation(nextLocation);
-                    nextFieldState.placeAnimal(this, nextLocation);
-                } 
-                else {
-                    // Overcrowding.
-                    setDead();
-                }
-            }
-            else {
-                if (getLocation() != null) {
-                    // let the prey sleep in the same place.
-                    nextFieldState.placeAnimal(this, getLocation());
-                }
-            }
+        proposal.births = breed();
+        // Move towards a source of food if found.
+        if (!isFull()) {
+            findFood(currentField, proposal);
         }
+        proposal.moves = canMove(time);
     }
 
     /**
-     * Make this prey more hungry. This could result in the prey's death.
-     * After eating, the prey will be full for FULL_STEPS steps.
+     * Eat the proposed plant if no other prey has eaten it first,
+     * then choose where to go. A prey stays where it is if it can
+     * move but does not.
+     * @param proposal The proposal made by this prey.
+     * @param nextFieldState The updated field.
+     * @return The chosen cell, or Field.NO_CELL if there is none.
      */
-    private void incrementHunger()
+    protected int chooseCell(Proposal proposal, Field nextFieldState)
     {
-        if (isFull) {
-            hungerTimer++;
-            if (hungerTimer >= FULL_STEPS) {
-                isFull = false;
-                hungerTimer = 0;
-            }
-        } else {
-            hungerTimer++;
-            if (hungerTimer >= HUNGRY_STEPS) {
-                setDead();
-                hungerTimer = 0;
-            }
+        int nextCell = Field.NO_CELL;
+        if (proposal.food instanceof LeafCell leafCell && leafCell.isAlive()) {
+            leafCell.removePlant();
+            feed();
+            nextCell = proposal.foodCell;
         }
+
+        // Try to move into a free location.
+        int freeCell = nextFieldState.getFreeAdjacentCell(proposal.cell, proposal.order);
+        if (nextCell == Field.NO_CELL && freeCell != Field.NO_CELL && proposal.moves) {
+            nextCell = freeCell;
+        } 
+        else if (freeCell != Field.NO_CELL) {
+            nextCell = proposal.cell;
+        }
+        return nextCell;
     }
 
     /**
-     * Look for plants adjacent to the current location.
-     * Only the first live plant is eaten.
-     * @param field The field currently occupied.
-     * @return Where food was found, or null if it wasn't.
+     * After eating, the prey will be full for PREY_FULL_STEPS steps.
+     * @return The number of steps the prey stays full.
      */
-    private Location findFood(Field field, Time time)
+    protected int getFullSteps()
     {
-        List<Location> adjacent = field.getAdjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
-        Location foodLocation = null;
-        while(foodLocation == null && it.hasNext()) {
-            Location loc = it.next();
-            Plant plant = field.getPlantAt(loc);
-            if (plant instanceof LeafCell leafCell) {
-                leafCell.removePlant();
-                hungerTimer = 0;
-                isFull = true;
-                foodLocation = loc;
-            }
-        }
-        return foodLocation;
+        return getParameters().getInt(Parameter.PREY_FULL_STEPS);
     }
 
     /**
-     * Check whether this prey is to give birth at this step.
-     * New births will be made into free adjacent locations.
-     * @param freeLocations The locations that are free in the current field.
+     * @return The number of steps after eating at which the prey dies
+     *         of hunger.
      */
-    protected void giveBirth(Field nextFieldState, List<Location> freeLocations)
+    protected int getStarvationSteps()
     {
-        // New armadillos are born into adjacent locations.
-        // Get a list of adjacent free locations.
-        if (hasCompatibleMate(nextFieldState)) {    
-            int births = breed();
-            if(births > 0) {
-                for (int b = 0; b < births && !freeLocations.isEmpty(); b++) {
-                    Location loc = freeLocations.remove(0);
-                    Animal young = offspring(loc);
-                    nextFieldState.placeAnimal(young, loc);
-                }
-            }
-        }
+        return getParameters().getInt(Parameter.PREY_FULL_STEPS)
+               + getParameters().getInt(Parameter.PREY_HUNGRY_STEPS);
     }
 
     /**
-     * Generate a number representing the number of births,
-     * if it can breed.
-     * @return The number of births (may be zero).
+     * Look for plants adjacent to the current location.
+     * Only the first live plant is chosen.
+     * @param field The field currently occupied.
+     * @param proposal The proposal to record the plant in.
      */
-    protected int breed()
+    private void findFood(Field field, Proposal proposal)
     {
-        int births;
-        if(breedSuccess()) {
-            births = birthNumber();
-        }
-        else {
-            births = 0;
+        int[] order = field.randomNeighbourOrder(getRandom());
+        for (int i = 0; proposal.food == null && i < order.length; i++) {
+            int next = field.getNeighbour(proposal.cell, order[i]);
+            if (next != Field.NO_CELL && field.getPlantAt(next) instanceof LeafCell leafCell) {
+                proposal.food = leafCell;
+                proposal.foodCell = next;
+            }
         }
-        return births;
     }
 
-
     /**
-     * Create a new prey as offspring.
-     * @param loc The location off the new offspring.
-     * @return The offspring.
-     */
-    abstract protected Animal offspring(Location loc);
-
-    /**
-     * A prey can breed successfully if it has reached the breeding age,
-     * and luck is on its side.
-     * @return true if the prey breeds successfully, false otherwise.
+     * Young prey are only born if there is a compatible mate next to
+     * this prey in the next state of the field.
+     * @param nextFieldState The updated field.
+     * @param cell The cell the young are born around.
+     * @param order The order in which to try the adjacent cells.
+     * @param births The number of young to place, room permitting.
      */
-    abstract protected boolean breedSuccess();
+    @Override
+    protected void giveBirth(Field nextFieldState, int cell, int[] order, int births)
+    {
+        if (hasCompatibleMate(nextFieldState)) {
+            super.giveBirth(nextFieldState, cell, order, births);
+        }
+    }
 
-    /**
-     * Generate number of offspring if breeding is successful.
-     * @return Number of offspring.
-     */
-    abstract protected int birthNumber();
-    
     /**
      * Calculate if a prey can move at this step.
      * @param time The time of day/night.
      * @return true if the prey can move, false otherwise.
      */
     abstract protected boolean canMove(Time time);
-    
-    /**
-     * Check if the prey is too old to live.
-     */
-    abstract protected void checkIfTooOld();
 }
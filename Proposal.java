@@ -0,0 +1,40 @@
+/**
+ * What an animal intends to do in one step, decided by looking only at
+ * the current state of the field. Proposals for different animals can
+ * therefore be made at the same time. They are then resolved one at a
+ * time against the next state of the field, which is where contested
+ * cells and food are settled.
+ *
+ * @author Aryan Sanvee Vijayan
+ * @version 24/02/2025
+ */
+public class Proposal
+{
+    // The cell the animal occupies in the current field.
+    final int cell;
+    // The order in which to try the adjacent cells.
+    final int[] order;
+    // Whether the animal dies of old age or hunger.
+    boolean dies;
+    // Whether the weather lets the animal act.
+    boolean acts;
+    // Whether the animal moves if it can.
+    boolean moves;
+    // The number of young the animal gives birth to if there is room.
+    int births;
+    // The organism the animal means to eat, or null.
+    Organism food;
+    // The cell of that organism in the current field, or Field.NO_CELL.
+    int foodCell = Field.NO_CELL;
+
+    /**
+     * Start a proposal for an animal.
+     * @param cell The cell the animal occupies in the current field.
+     * @param order The order in which to try the adjacent cells.
+     */
+    public Proposal(int cell, int[] order)
+    {
+        this.cell = cell;
+        this.order = order;
+    }
+}
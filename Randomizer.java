@@ -1,20 +1,23 @@
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
- * Provide control over the randomization of the simulation. By using the shared, fixed-seed 
- * randomizer, repeated runs will perform exactly the same (which helps with testing). Set 
- * 'useShared' to false to get different random behaviour every time.
+ * Provide control over the randomization of the simulation. A run draws
+ * from one root generator; every animal is given its own stream split
+ * off from its parent's (or from the root when the field is populated),
+ * and draws only from that. The numbers an animal sees therefore do not
+ * depend on the order in which animals act or on how many threads are
+ * used. With the fixed seed, repeated runs perform exactly the same
+ * (which helps with testing). Set 'useShared' to false to get different
+ * random behaviour every time.
  * 
  * @author David J. Barnes and Michael Kölling
- * @version 7.0
+ * @version 25/02/2025
  */
 public class Randomizer
 {
     // The default seed for control of randomization.
-    private static final int SEED = 1111;
-    // A shared Random object, if required.
-    private static final Random rand = new Random(SEED);
-    // Determine whether a shared random generator is to be provided.
+    private static final long SEED = 1111;
+    // Determine whether runs start from the fixed seed.
     private static final boolean useShared = true;
 
     /**
@@ -25,28 +28,41 @@ public class Randomizer
     }
 
     /**
-     * Provide a random generator.
-     * @return A random object.
+     * Provide a root random generator for a run.
+     * @return A new random generator.
      */
-    public static Random getRandom()
+    public static SplittableRandom getRandom()
     {
         if(useShared) {
-            return rand;
+            return new SplittableRandom(SEED);
         }
         else {
-            return new Random();
+            return new SplittableRandom();
         }
     }
-    
+
     /**
-     * Reset the randomization.
-     * This will have no effect if randomization is not 
-     * through a shared Random generator.
+     * Provide the seed of a run that is not given one: the fixed seed,
+     * or a new random seed if runs are not to start from it.
+     * @return The seed.
      */
-    public static void reset()
+    public static long getSeed()
     {
         if(useShared) {
-            rand.setSeed(SEED);
+            return SEED;
+        }
+        else {
+            return new SplittableRandom().nextLong();
         }
     }
+
+    /**
+     * Provide a root random generator for a run with the given seed.
+     * @param seed The seed of the run.
+     * @return A new random generator.
+     */
+    public static SplittableRandom getRandom(long seed)
+    {
+        return new SplittableRandom(seed);
+    }
 }
@@ -0,0 +1,64 @@
+import java.util.List;
+
+/**
+ * A step engine working in two phases on a single thread. First every
+ * animal proposes what it will do, looking only at the current field;
+ * then the proposals are resolved one at a time, in the order of the
+ * field's animals, against the next state of the field. Since no
+ * proposal depends on another, how the proposals are made does not
+ * change the outcome, which is what lets ParallelStepEngine make them
+ * on several threads.
+ *
+ * @author Aryan Sanvee Vijayan
+ * @version 24/02/2025
+ */
+public class SequentialStepEngine implements StepEngine
+{
+    // The proposals of the current step, reused between steps.
+    private Proposal[] proposals = new Proposal[0];
+
+    public void step(Field field, Field nextFieldState, Time time, Weather weather)
+    {
+        DeathSchedule.step(field, nextFieldState);
+        List<Animal> animals = field.getAnimals();
+        int count = animals.size();
+        if (proposals.length < count) {
+            proposals = new Proposal[count];
+        }
+        proposeAll(animals, proposals, field, time, weather);
+        for (int i = 0; i < count; i++) {
+            animals.get(i).resolve(proposals[i], nextFieldState);
+            proposals[i] = null;
+        }
+
+        actPlants(field, nextFieldState, time);
+    }
+
+    /**
+     * Make the proposal of each animal.
+     * @param animals The animals of the current field.
+     * @param proposals Where to store the proposal of each animal, by
+     *                  its index in the list.
+     * @param field The current state of the field.
+     * @param time The time of day/night.
+     * @param weather The current weather conditions.
+     */
+    protected void proposeAll(List<Animal> animals, Proposal[] proposals,
+                              Field field, Time time, Weather weather)
+    {
+        for (int i = 0; i < animals.size(); i++) {
+            proposals[i] = animals.get(i).propose(field, time, weather);
+        }
+    }
+
+    /**
+     * Build the plants of the next field state.
+     * @param field The current state of the field.
+     * @param nextFieldState The new state being built.
+     * @param time The time of day/night.
+     */
+    protected void actPlants(Field field, Field nextFieldState, Time time)
+    {
+        PlantSchedule.step(field, nextFieldState, time, null);
+    }
+}
@@ -1,4 +1,10 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * A simple predator-prey simulator, based on a rectangular field containing 
@@ -10,26 +16,13 @@ import java.util.*;
 public class Simulator
 {
     // Constants representing configuration information for the simulation.
+    // Those that can be varied are Parameter values.
     // The default width for the grid.
     private static final int DEFAULT_WIDTH = 150;
     // The default depth of the grid.
     private static final int DEFAULT_DEPTH = 100;
-    // The probability that a ocelot will be created in any given grid position.
-    private static final double OCELOT_CREATION_PROBABILITY = 0.01;
-    // The probability that a armadillo will be created in any given position.
-    private static final double ARMADILLO_CREATION_PROBABILITY = 0.05;    
-    // The probability that a deer will be created in any given position.
-    private static final double DEER_CREATION_PROBABILITY = 0.05;
-    // The probability that a snake will be created in any given position.
-    private static final double SNAKE_CREATION_PROBABILITY = 0.01;
-    // The probability that a jaguar will be created in any given position.
-    private static final double JAGUAR_CREATION_PROBABILITY = 0.01;
-    // The probability that a plant will be created in any given position
-    private static final double PLANT_CREATION_PROBABILITY = 0.02;
-    // The number of steps in one day/night cycle.
-    private static final int DAY_STEPS = 5;
-    // The number of steps in one weather cycle.
-    private static final int WEATHER_STEPS = 10;
+    // The default number of steps per second when there is a view.
+    private static final double DEFAULT_STEP_RATE = 20;
     // The current state of day/night.
     private Time time;
     // The current state of weather.
@@ -37,10 +30,26 @@ public class Simulator
 
     // The current state of the field.
     private Field field;
+    // A spare field in which the next state is built. The two fields
+    // are swapped after every step, so neither is reallocated.
+    private Field nextFieldState;
     // The current step of the simulation.
     private int step;
-    // A graphical view of the simulation.
+    // The root random number stream of the run. Each animal is given
+    // a stream split from it when the field is populated.
+    private SplittableRandom random;
+    // Builds the next state of the field at each step.
+    private StepEngine engine = new SequentialStepEngine();
+    // The parameters of the simulation.
+    private final Parameters parameters;
+    // A graphical view of the simulation, or null when the simulation
+    // runs without one.
     private final SimulatorView view;
+    // The number of steps per second that simulate aims for, or 0 to
+    // run as fast as possible.
+    private double stepRate;
+    // The steps per second achieved by the last call of simulate.
+    private double achievedStepRate;
 
     /**
      * Construct a simulation field with default size.
@@ -54,6 +63,238 @@ public class Simulator
      * Construct a simulation field with specific size.
      */
     public Simulator(int depth, int width)
+    {
+        this(depth, width, StorageType.DENSE);
+    }
+
+    /**
+     * Construct a simulation field with specific size, stored in the
+     * given way. Use StorageType.CHUNKED for huge, mostly empty fields.
+     */
+    public Simulator(int depth, int width, StorageType storageType)
+    {
+        this(depth, width, storageType, true);
+    }
+
+    /**
+     * Construct a simulation field with specific size, stored in the
+     * given way, with or without a graphical view. A simulation without
+     * a view prints nothing and by default runs as fast as it can, and
+     * several can run at once on different threads.
+     */
+    public Simulator(int depth, int width, StorageType storageType, boolean visible)
+    {
+        this(depth, width, storageType, visible, Parameters.DEFAULTS);
+    }
+
+    /**
+     * Construct a simulation field with specific size, stored in the
+     * given way, with or without a graphical view, and with the given
+     * values for the parameters of the species and the starting
+     * population.
+     */
+    public Simulator(int depth, int width, StorageType storageType, boolean visible,
+                     Parameters parameters)
+    {
+        this(createField(depth, width, storageType), visible, parameters);
+    }
+
+    /**
+     * Construct a simulation field with specific size, stored in the
+     * given way, with or without a graphical view, with the given
+     * values for the parameters, and populated from the given seed.
+     * The run is the same as one reset with the seed.
+     */
+    public Simulator(int depth, int width, StorageType storageType, boolean visible,
+                     Parameters parameters, long seed)
+    {
+        this(createField(depth, width, storageType), visible, parameters, seed);
+    }
+
+    /**
+     * Construct a simulation on the given empty field, e.g. one whose
+     * cells are held in a file mapped into memory. The spare field is
+     * created from it with Field(Field), so is stored in the same way.
+     */
+    public Simulator(Field field, boolean visible, Parameters parameters)
+    {
+        this(field, visible, parameters, Randomizer.getRandom());
+    }
+
+    /**
+     * Construct a simulation on the given empty field, populated from
+     * the given seed.
+     */
+    public Simulator(Field field, boolean visible, Parameters parameters, long seed)
+    {
+        this(field, visible, parameters, Randomizer.getRandom(seed));
+    }
+
+    /**
+     * Construct a simulation on the given empty field, populated from
+     * the given root random number stream.
+     */
+    private Simulator(Field field, boolean visible, Parameters parameters, SplittableRandom random)
+    {
+        this.field = field;
+        nextFieldState = new Field(field);
+        view = visible ? new SimulatorView(field.getDepth(), field.getWidth()) : null;
+        stepRate = visible ? DEFAULT_STEP_RATE : 0;
+        this.parameters = parameters;
+        time = Time.DAY;
+        weather = Weather.CLEAR;
+
+        reset(random);
+    }
+
+    /**
+     * Run a simulation from the command line. With no options, a
+     * default field runs for 700 steps without a view, as fast as it
+     * can, and the number of steps per second is reported at the end.
+     * Run with --help for the options.
+     * @param args The options.
+     */
+    public static void main(String[] args)
+    {
+        int depth = DEFAULT_DEPTH;
+        int width = DEFAULT_WIDTH;
+        int steps = 700;
+        long seed = Randomizer.getSeed();
+        StorageType storageType = StorageType.DENSE;
+        String engineName = "sequential";
+        boolean visible = false;
+        Double rate = null;
+        boolean stats = false;
+        boolean balance = false;
+        String csv = null;
+        String cellFile = null;
+        try {
+            for(int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if(option.equals("--help")) {
+                    printUsage();
+                    return;
+                }
+                else if(option.equals("--view")) {
+                    visible = true;
+                }
+                else if(option.equals("--stats")) {
+                    stats = true;
+                }
+                else if(option.equals("--balance")) {
+                    balance = true;
+                }
+                else if(i + 1 == args.length) {
+                    throw new IllegalArgumentException("Unknown option or missing value: " + option);
+                }
+                else {
+                    String value = args[++i];
+                    switch(option) {
+                        case "--depth":   depth = Integer.parseInt(value); break;
+                        case "--width":   width = Integer.parseInt(value); break;
+                        case "--steps":   steps = Integer.parseInt(value); break;
+                        case "--seed":    seed = Long.parseLong(value); break;
+                        case "--storage": storageType = parseStorageType(value); break;
+                        case "--engine":  engineName = value; break;
+                        case "--rate":    rate = Double.parseDouble(value); break;
+                        case "--csv":     csv = value; break;
+                        case "--cells":   cellFile = value; break;
+                        default:
+                            throw new IllegalArgumentException("Unknown option: " + option);
+                    }
+                }
+            }
+            if(depth <= 0 || width <= 0 || steps < 0 || (rate != null && rate < 0)) {
+                throw new IllegalArgumentException("The sizes, steps and rate must not be negative.");
+            }
+            StepEngine engine = createEngine(engineName);
+            if(balance && !(engine instanceof TiledStepEngine)) {
+                throw new IllegalArgumentException("--balance needs the tiled or balanced engine.");
+            }
+
+            if(!visible) {
+                System.setProperty("java.awt.headless", "true");
+            }
+            Field startField;
+            if(cellFile != null) {
+                startField = new Field(depth, width, new OffHeapStorage(depth, width, Paths.get(cellFile)));
+            }
+            else {
+                startField = createField(depth, width, storageType);
+            }
+            Simulator simulator = new Simulator(startField, visible, Parameters.DEFAULTS, seed);
+            simulator.setStepEngine(engine);
+            if(rate != null) {
+                simulator.setStepRate(rate);
+            }
+            PopulationSeries series = new PopulationSeries(seed, steps);
+            series.record(simulator.getField());
+            boolean recording = csv != null;
+            boolean printStats = stats && !visible;
+            simulator.simulate(steps, field -> {
+                if(recording) {
+                    series.record(field);
+                }
+                if(printStats) {
+                    field.fieldStats();
+                }
+            });
+
+            System.out.printf(Locale.ROOT, "%d steps from seed %d, %.1f steps/s%n",
+                              simulator.getStep(), seed, simulator.getStepsPerSecond());
+            simulator.reportStats();
+            if(balance) {
+                ((TiledStepEngine) engine).printBusyTimes();
+            }
+            if(recording) {
+                try(Writer out = Files.newBufferedWriter(Paths.get(csv))) {
+                    series.write(out);
+                }
+            }
+        }
+        catch(IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(1);
+        }
+        catch(IOException | UncheckedIOException e) {
+            System.err.println("Could not write a file: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Print the command line options.
+     */
+    private static void printUsage()
+    {
+        System.err.println("Options:");
+        System.err.println("  --depth N       the depth of the field (" + DEFAULT_DEPTH + ")");
+        System.err.println("  --width N       the width of the field (" + DEFAULT_WIDTH + ")");
+        System.err.println("  --steps N       the number of steps to run (700)");
+        System.err.println("  --seed N        the seed of the run (Randomizer's default seed)");
+        System.err.println("  --storage TYPE  dense, chunked or off-heap (dense)");
+        System.err.println("  --cells FILE    hold the cells off-heap in FILE, mapped into memory");
+        System.err.println("  --engine NAME   sequential, parallel, tiled, balanced or soa, which keeps");
+        System.err.println("                  the animals' state in arrays (sequential)");
+        System.err.println("  --view          show the field in a window");
+        System.err.println("  --rate R        the steps per second to aim for, 0 for as fast as");
+        System.err.println("                  possible (" + DEFAULT_STEP_RATE + " with a view, 0 without)");
+        System.err.println("  --stats         print the populations after every step");
+        System.err.println("  --csv FILE      write the populations after every step to FILE");
+        System.err.println("  --balance       print the time each thread spent on blocks, with the");
+        System.err.println("                  tiled or balanced engine");
+    }
+
+    /**
+     * Create a field, using the default size if the given one is not
+     * positive.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param storageType How the cells are to be stored.
+     * @return The empty field.
+     */
+    private static Field createField(int depth, int width, StorageType storageType)
     {
         if(width <= 0 || depth <= 0) {
             System.out.println("The dimensions must be >= zero.");
@@ -61,13 +302,40 @@ public class Simulator
             depth = DEFAULT_DEPTH;
             width = DEFAULT_WIDTH;
         }
+        return new Field(depth, width, storageType);
+    }
 
-        field = new Field(depth, width);
-        view = new SimulatorView(depth, width);
-        time = Time.DAY;
-        weather = Weather.CLEAR;
+    /**
+     * Find the storage type with the given name.
+     * @param name The name, as given by StorageType.toString.
+     * @return The storage type.
+     */
+    private static StorageType parseStorageType(String name)
+    {
+        for(StorageType type : StorageType.values()) {
+            if(type.toString().equals(name)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown storage type: " + name);
+    }
 
-        reset();
+    /**
+     * Create the step engine with the given name.
+     * @param name sequential, parallel, tiled, balanced or soa.
+     * @return The step engine.
+     */
+    private static StepEngine createEngine(String name)
+    {
+        switch(name) {
+            case "sequential": return new SequentialStepEngine();
+            case "parallel":   return new ParallelStepEngine();
+            case "tiled":      return new TiledStepEngine();
+            case "balanced":   return new BalancedStepEngine();
+            case "soa":        return new SoaStepEngine();
+            default:
+                throw new IllegalArgumentException("Unknown step engine: " + name);
+        }
     }
 
     /**
@@ -86,22 +354,21 @@ public class Simulator
     public void simulateOneStep()
     {
         step++;
-        // Use a separate Field to store the starting state of
-        // the next step.
-        Field nextFieldState = new Field(field.getDepth(), field.getWidth());
-
-        List<Animal> animals = field.getAnimals();
-        for (Animal anAnimal : animals) {
-            anAnimal.act(field, nextFieldState, time, weather);
-        }
+        // Reuse the spare field to store the starting state of
+        // the next step. It still holds the state from two steps ago.
+        nextFieldState.clear();
 
-        List<Plant> plants = field.getPlants();
-        for (Plant plant : plants) {
-            plant.act(field, nextFieldState, time);
-        }
+        engine.step(field, nextFieldState, time, weather);
 
-        // Replace the old state with the new one.
+        // Replace the old state with the new one, keeping the old
+        // one as the spare for the next step.
+        Field oldFieldState = field;
         field = nextFieldState;
+        nextFieldState = oldFieldState;
+        if(view != null) {
+            // Let the view redraw only the cells that have changed.
+            field.recordChanges(nextFieldState);
+        }
 
         // Changes the day/time cycle every 20 steps.
         changeTime();
@@ -109,8 +376,10 @@ public class Simulator
         // Changes the weather cycle every 10 steps.
         changeWeather();
 
-        reportStats();
-        view.showStatus(step, time, field, weather);
+        if(view != null) {
+            reportStats();
+            view.showStatus(step, time, field, weather);
+        }
     }
 
     /**
@@ -120,22 +389,101 @@ public class Simulator
      */
     public void simulate(int numSteps)
     {
-        reportStats();
+        simulate(numSteps, field -> {});
+    }
+
+    /**
+     * Run the simulation for the given number of steps, showing the
+     * field after each one to an observer.
+     * Stop before the given number of steps if it ceases to be viable.
+     * @param numSteps The number of steps to run for.
+     * @param observer Given the field after each step.
+     */
+    public void simulate(int numSteps, Consumer<Field> observer)
+    {
+        if(view != null) {
+            reportStats();
+        }
+        long period = stepRate > 0 ? Math.round(1e9 / stepRate) : 0;
+        long start = System.nanoTime();
+        long deadline = start;
+        int stepsRun = 0;
         for(int n = 1; n <= numSteps && field.isViable(); n++) {
             simulateOneStep();
-            delay(50);         // adjust this to change execution speed
+            observer.accept(field);
+            stepsRun++;
+            if(period > 0) {
+                deadline = pace(deadline + period, period);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        achievedStepRate = elapsed > 0 ? stepsRun * 1e9 / elapsed : 0;
+    }
+
+    /**
+     * Set the number of steps per second that simulate aims for. By
+     * default it is 20 with a view, and as fast as possible without.
+     * @param stepsPerSecond The step rate, or 0 for as fast as possible.
+     */
+    public void setStepRate(double stepsPerSecond)
+    {
+        if(stepsPerSecond < 0) {
+            throw new IllegalArgumentException("The step rate must not be negative: "
+                                               + stepsPerSecond);
         }
+        stepRate = stepsPerSecond;
+    }
+
+    /**
+     * @return The steps per second achieved by the last call of simulate.
+     */
+    public double getStepsPerSecond()
+    {
+        return achievedStepRate;
+    }
+
+    /**
+     * Set the engine used to build each step, e.g. a ParallelStepEngine
+     * to make use of several cores.
+     * @param engine The step engine.
+     */
+    public void setStepEngine(StepEngine engine)
+    {
+        this.engine = engine;
     }
 
     /**
      * Reset the simulation to a starting position.
      */
     public void reset()
+    {
+        reset(Randomizer.getRandom());
+    }
+
+    /**
+     * Reset the simulation to a starting position, drawing all of the
+     * run's random numbers from the given seed. Two runs from the same
+     * seed are identical, whichever step engine is used.
+     * @param seed The seed of the run.
+     */
+    public void reset(long seed)
+    {
+        reset(Randomizer.getRandom(seed));
+    }
+
+    /**
+     * Reset the simulation to a starting position.
+     * @param random The root random number stream of the run.
+     */
+    private void reset(SplittableRandom random)
     {
         time = Time.DAY;
         step = 0;
+        this.random = random;
         populate();
-        view.showStatus(step, time, field, weather);
+        if(view != null) {
+            view.showStatus(step, time, field, weather);
+        }
     }
 
     /**
@@ -143,38 +491,37 @@ public class Simulator
      */
     private void populate()
     {
-        Random rand = Randomizer.getRandom();
         field.clear();
         for(int row = 0; row < field.getDepth(); row++) {
             for(int col = 0; col < field.getWidth(); col++) {
-                if(rand.nextDouble() <= DEER_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Deer deer = new Deer(true, location);
+                if(random.nextDouble() <= parameters.get(Parameter.DEER_CREATION_PROBABILITY)) {
+                    Location location = field.getLocation(row, col);
+                    Deer deer = new Deer(parameters, true, location, random.split());
                     field.placeAnimal(deer, location);
                 }
-                else if(rand.nextDouble() <= JAGUAR_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Jaguar jaguar = new Jaguar(true, location);
+                else if(random.nextDouble() <= parameters.get(Parameter.JAGUAR_CREATION_PROBABILITY)) {
+                    Location location = field.getLocation(row, col);
+                    Jaguar jaguar = new Jaguar(parameters, true, location, random.split());
                     field.placeAnimal(jaguar, location);
                 }
-                else if(rand.nextDouble() <= SNAKE_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Snake snake = new Snake(true, location);
+                else if(random.nextDouble() <= parameters.get(Parameter.SNAKE_CREATION_PROBABILITY)) {
+                    Location location = field.getLocation(row, col);
+                    Snake snake = new Snake(parameters, true, location, random.split());
                     field.placeAnimal(snake, location);
                 }
-                else if(rand.nextDouble() <= OCELOT_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Ocelot ocelot = new Ocelot(true, location);
+                else if(random.nextDouble() <= parameters.get(Parameter.OCELOT_CREATION_PROBABILITY)) {
+                    Location location = field.getLocation(row, col);
+                    Ocelot ocelot = new Ocelot(parameters, true, location, random.split());
                     field.placeAnimal(ocelot, location);
                 }
-                else if(rand.nextDouble() <= ARMADILLO_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Armadillo armadillo = new Armadillo(true, location);
+                else if(random.nextDouble() <= parameters.get(Parameter.ARMADILLO_CREATION_PROBABILITY)) {
+                    Location location = field.getLocation(row, col);
+                    Armadillo armadillo = new Armadillo(parameters, true, location, random.split());
                     field.placeAnimal(armadillo, location);
                 }
-                else if(rand.nextDouble() <= PLANT_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Plant plant = new CorePlant(location);
+                else if(random.nextDouble() <= parameters.get(Parameter.PLANT_CREATION_PROBABILITY)) {
+                    Location location = field.getLocation(row, col);
+                    Plant plant = new CorePlant(parameters, location);
                     field.placePlant(plant, location);
                 }
                 // else leave the location empty.
@@ -182,6 +529,22 @@ public class Simulator
         }
     }
 
+    /**
+     * @return The current state of the field.
+     */
+    public Field getField()
+    {
+        return field;
+    }
+
+    /**
+     * @return The number of steps taken since the last reset.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
     /**
      * Report on the number of each type of animal in the field.
      */
@@ -192,17 +555,30 @@ public class Simulator
     }
 
     /**
-     * Pause for a given time.
-     * @param milliseconds The time to pause for, in milliseconds
-     */ 
-    private void delay(int milliseconds)
+     * Pause until the given time, so that steps keep to a steady rate
+     * however long each one takes. A step that overruns by more than
+     * a whole period is not made up for by hurrying the next ones.
+     * @param deadline The time to pause until, from System.nanoTime.
+     * @param period The time between steps, in nanoseconds.
+     * @return The deadline that was kept, from which to count the next.
+     */
+    private long pace(long deadline, long period)
     {
+        long now = System.nanoTime();
+        if(now - deadline > period) {
+            return now;
+        }
         try {
-            Thread.sleep(milliseconds);
+            while(now < deadline) {
+                long remaining = deadline - now;
+                Thread.sleep(remaining / 1_000_000, (int) (remaining % 1_000_000));
+                now = System.nanoTime();
+            }
         }
         catch(InterruptedException e) {
             // ignore
         }
+        return deadline;
     }
 
     /**
@@ -211,7 +587,7 @@ public class Simulator
      */
     private void changeTime()
     {
-        if (step % DAY_STEPS == 0) {
+        if (step % parameters.getInt(Parameter.DAY_STEPS) == 0) {
             time = (time == Time.DAY) ? Time.NIGHT : Time.DAY;
         }
     }
@@ -222,8 +598,8 @@ public class Simulator
      */
     private void changeWeather()
     {
-        if (step % WEATHER_STEPS == 0) {
-            weather = Weather.randomWeather();
+        if (step % parameters.getInt(Parameter.WEATHER_STEPS) == 0) {
+            weather = Weather.randomWeather(random);
         }
     }
 }
@@ -1,7 +1,9 @@
 import java.awt.*;
+import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.swing.*;
-import java.util.LinkedHashMap;
-import java.util.Map;
 
 /**
  * A graphical view of the simulation grid.
@@ -9,6 +11,12 @@ import java.util.Map;
  * representing its contents. It uses a default background color.
  * Colors for each type of species can be defined using the
  * setColor method.
+ *
+ * The simulation does not draw the field itself. After each step it
+ * hands the view a FieldSnapshot, and the view draws the latest one on
+ * the event dispatch thread at its own frame rate. Snapshots that
+ * arrive faster than that are dropped unseen, so a step costs the same
+ * however big the window is.
  * 
  * @author David J. Barnes, Aryan Sanvee Vijayan, Alexander Sukhin and Michael Kölling
  * @version 18/02/2025
@@ -21,6 +29,12 @@ public class SimulatorView extends JFrame
     // Color used for objects that have no defined color.
     private static final Color UNKNOWN_COLOR = Color.gray;
 
+    // Color used for plants.
+    private static final Color PLANT_COLOR = new Color(0, 153, 51);
+
+    // The largest number of frames drawn per second.
+    private static final int FRAME_RATE = 30;
+
     private final String STEP_PREFIX = "Step: ";
     private final String TIME_PREFIX = "Time: ";
     private final String WEATHER_PREFIX = "Weather: ";
@@ -29,10 +43,18 @@ public class SimulatorView extends JFrame
     private final JLabel population;
     private final FieldView fieldView;
     
-    // A map for storing colors for participants in the simulation
-    private final Map<Class<?>, Color> colors;
+    // The colors for participants in the simulation, indexed by species id
+    private final Color[] colors;
+    // The packed RGB value drawn for each cell code, worked out again
+    // whenever a color is set.
+    private volatile int[] palette;
     // A statistics object computing and storing simulation information
     private final FieldStats stats;
+    // The latest snapshot not yet drawn, or null if it has been.
+    private final AtomicReference<FieldSnapshot> pending = new AtomicReference<>();
+    // A cell array given up by a drawn or dropped snapshot, for the
+    // next snapshot to reuse.
+    private final AtomicReference<byte[]> spareCells = new AtomicReference<>();
 
     /**
      * Create a view of the given width and height.
@@ -42,12 +64,12 @@ public class SimulatorView extends JFrame
     public SimulatorView(int height, int width)
     {
         stats = new FieldStats();
-        colors = new LinkedHashMap<>();
-        setColor(Armadillo.class, Color.orange);
-        setColor(Ocelot.class, Color.blue);
-        setColor(Deer.class, Color.cyan);
-        setColor(Snake.class, Color.green);
-        setColor(Jaguar.class, Color.magenta);
+        colors = new Color[Species.COUNT];
+        setColor(Species.ARMADILLO, Color.orange);
+        setColor(Species.OCELOT, Color.blue);
+        setColor(Species.DEER, Color.cyan);
+        setColor(Species.SNAKE, Color.green);
+        setColor(Species.JAGUAR, Color.magenta);
 
         setTitle("Prey and Predator Simulation");
         // figure out why north label requires this first parameter...
@@ -64,26 +86,57 @@ public class SimulatorView extends JFrame
         contents.add(population, BorderLayout.SOUTH);
         pack();
         setVisible(true);
+
+        Timer frameTimer = new Timer(1000 / FRAME_RATE, e -> drawPending());
+        frameTimer.start();
     }
     
     /**
-     * Define a color to be used for a given class of animal.
-     * @param animalClass The animal's Class object.
-     * @param color The color to be used for the given class.
+     * Define a color to be used for a given species.
+     * @param species The species.
+     * @param color The color to be used for the given species.
      */
-    public void setColor(Class<?> animalClass, Color color)
+    public void setColor(Species species, Color color)
     {
-        colors.put(animalClass, color);
+        colors[species.id()] = color;
+        int[] newPalette = new int[FieldSnapshot.CODE_COUNT];
+        newPalette[FieldSnapshot.EMPTY] = EMPTY_COLOR.getRGB();
+        for(Species each : Species.values()) {
+            int code = each.id() + 1;
+            newPalette[code] = getColor(code).getRGB();
+            newPalette[code | FieldSnapshot.INFECTED] = getColor(code | FieldSnapshot.INFECTED).getRGB();
+        }
+        palette = newPalette;
+    }
+
+    /**
+     * @return The color to be used for a given cell code.
+     */
+    private Color getColor(int code)
+    {
+        Species species = FieldSnapshot.getSpecies(code);
+        if(species == null) {
+            return EMPTY_COLOR;
+        }
+        else if(!species.isAnimal()) {
+            return PLANT_COLOR;
+        }
+        else if(FieldSnapshot.isInfected(code)) {
+            return getColor(species).darker();
+        }
+        else {
+            return getColor(species);
+        }
     }
 
     /**
-     * @return The color to be used for a given class of animal.
+     * @return The color to be used for a given species.
      */
-    private Color getColor(Class<?> animalClass)
+    private Color getColor(Species species)
     {
-        Color col = colors.get(animalClass);
+        Color col = colors[species.id()];
         if(col == null) {
-            // no color defined for this class
+            // no color defined for this species
             return UNKNOWN_COLOR;
         }
         else {
@@ -92,52 +145,46 @@ public class SimulatorView extends JFrame
     }
 
     /**
-     * Show the current status of the field.
+     * Show the current status of the field. This only takes a snapshot
+     * of the field, which is drawn later, and may be called from any
+     * thread.
      * @param step Which iteration step it is.
      * @param field The field whose status is to be displayed.
      */
     public void showStatus(int step, Time time, Field field, Weather weather)
     {
+        // Take back a snapshot that has not been drawn, so that its
+        // changes are drawn with this one.
+        FieldSnapshot undrawn = pending.getAndSet(null);
+        byte[] cells = undrawn != null ? undrawn.release() : spareCells.getAndSet(null);
+        FieldSnapshot snapshot = new FieldSnapshot(step, time, weather, field, cells);
+        if(undrawn != null) {
+            snapshot.addChanges(undrawn);
+        }
+        pending.set(snapshot);
+    }
+
+    /**
+     * Draw the latest snapshot, if there is one that has not been drawn.
+     * Called on the event dispatch thread at the frame rate.
+     */
+    private void drawPending()
+    {
+        FieldSnapshot snapshot = pending.getAndSet(null);
+        if(snapshot == null) {
+            return;
+        }
         if(!isVisible()) {
             setVisible(true);
         }
         
-        northLabel.setText(STEP_PREFIX + step + " " + TIME_PREFIX + time + " " + 
-                            WEATHER_PREFIX + weather);
-        
-        stats.reset();
+        northLabel.setText(STEP_PREFIX + snapshot.getStep() + " " + TIME_PREFIX + snapshot.getTime()
+                           + " " + WEATHER_PREFIX + snapshot.getWeather());
         
-        fieldView.preparePaint();
-
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Animal animal = field.getAnimalAt(new Location(row, col));
-                Plant plant = field.getPlantAt(new Location(row, col));
-                
-                
-                if (plant != null) {
-                    fieldView.drawMark(col, row, new Color(0, 153, 51));
-                }
-                
-                if(animal != null) {
-                    stats.incrementCount(animal.getClass());
-                        
-                    if (animal.isInfected() == true) {
-                        fieldView.drawMark(col, row, getColor(animal.getClass()).darker());
-                    } else {
-                        fieldView.drawMark(col, row, getColor(animal.getClass()));
-                    }
-                }
-                
-                if (plant == null && animal == null){
-                    fieldView.drawMark(col, row, EMPTY_COLOR);
-                }
-            }
-        }
-        stats.countFinished();
+        fieldView.drawSnapshot(snapshot, palette);
 
-        population.setText(POPULATION_PREFIX + stats.getPopulationDetails(field));
-        fieldView.repaint();
+        population.setText(POPULATION_PREFIX + snapshot.getPopulationDetails());
+        spareCells.set(snapshot.release());
     }
 
     /**
@@ -160,12 +207,34 @@ public class SimulatorView extends JFrame
     private class FieldView extends JPanel
     {
         private final int GRID_VIEW_SCALING_FACTOR = 6;
+        // The largest number of pixels across or down that the field
+        // is given at one pixel per cell. A bigger field is shown as
+        // an overview, one pixel for each block of cells.
+        private final int MAX_VIEW_CELLS = 800;
+        // The finest level of the summary of a big field. Zooming in
+        // past it goes straight to single cells.
+        private final int MIN_SUMMARY_LEVEL = 3;
 
         private final int gridWidth, gridHeight;
-        private int xScale, yScale;
-        Dimension size;
-        private Graphics g;
-        private Image fieldImage;
+        // The level at which the whole field fits in the view: 0 if it
+        // fits at one pixel per cell, otherwise each pixel of the
+        // overview is a block of 2^topLevel by 2^topLevel cells.
+        private final int topLevel;
+        // The summary of a field shown as an overview, or null if the
+        // field fits at one pixel per cell.
+        private final FieldSummary summary;
+        // The level shown, and the row and column of the block at the
+        // top left of the view at that level.
+        private int level;
+        private int originRow, originCol;
+        // The view at one pixel per block of the level shown, scaled
+        // to the size of the component when it is painted.
+        private final BufferedImage fieldImage;
+        private final int imageRows, imageCols;
+        // The pixels of the image, one packed RGB value per block.
+        private final int[] pixels;
+        // The palette of the last snapshot drawn, or null if none has been.
+        private int[] drawnPalette;
 
         /**
          * Create a new FieldView component.
@@ -174,7 +243,28 @@ public class SimulatorView extends JFrame
         {
             gridHeight = height;
             gridWidth = width;
-            size = new Dimension(0, 0);
+            int top = 0;
+            while(Math.max(height, width) > MAX_VIEW_CELLS << top) {
+                top++;
+            }
+            topLevel = top;
+            level = top;
+            imageRows = (height + (1 << top) - 1) >> top;
+            imageCols = (width + (1 << top) - 1) >> top;
+            summary = top == 0 ? null
+                               : new FieldSummary(height, width, Math.min(top, MIN_SUMMARY_LEVEL), top);
+            fieldImage = new BufferedImage(imageCols, imageRows, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) fieldImage.getRaster().getDataBuffer()).getData();
+
+            if(summary != null) {
+                setToolTipText("Left click to zoom in, right click to zoom out");
+                addMouseListener(new MouseAdapter() {
+                    public void mouseClicked(MouseEvent e)
+                    {
+                        zoom(e.getX(), e.getY(), !SwingUtilities.isRightMouseButton(e));
+                    }
+                });
+            }
         }
 
         /**
@@ -182,57 +272,118 @@ public class SimulatorView extends JFrame
          */
         public Dimension getPreferredSize()
         {
-            return new Dimension(gridWidth * GRID_VIEW_SCALING_FACTOR,
-                                 gridHeight * GRID_VIEW_SCALING_FACTOR);
+            if(summary == null) {
+                return new Dimension(gridWidth * GRID_VIEW_SCALING_FACTOR,
+                                     gridHeight * GRID_VIEW_SCALING_FACTOR);
+            }
+            // An overview is scaled up as far as it will go without
+            // growing past the largest view.
+            int scale = Math.max(1, Math.min(GRID_VIEW_SCALING_FACTOR,
+                                             MAX_VIEW_CELLS / Math.max(imageRows, imageCols)));
+            return new Dimension(imageCols * scale, imageRows * scale);
         }
 
         /**
-         * Prepare for a new round of painting. Since the component
-         * may be resized, compute the scaling factor again.
+         * Draw a snapshot of the field into the image, writing the
+         * color of each cell straight into its pixel. Only the cells
+         * that have changed since the last snapshot drawn are written,
+         * and only the rectangle around them is repainted. A field shown
+         * as an overview has its summary brought up to date instead, and
+         * the part of it in view is drawn.
+         * @param snapshot The snapshot, of a field of this size.
+         * @param palette The packed RGB value of each cell code.
          */
-        public void preparePaint()
+        public void drawSnapshot(FieldSnapshot snapshot, int[] palette)
         {
-            if(! size.equals(getSize())) {  // if the size has changed...
-                size = getSize();
-                fieldImage = fieldView.createImage(size.width, size.height);
-                g = fieldImage.getGraphics();
-
-                xScale = size.width / gridWidth;
-                if(xScale < 1) {
-                    xScale = GRID_VIEW_SCALING_FACTOR;
+            if(summary != null) {
+                summary.update(snapshot);
+                drawnPalette = palette;
+                drawSummary();
+                return;
+            }
+            if(snapshot.isAllChanged() || palette != drawnPalette) {
+                for(int cell = 0; cell < pixels.length; cell++) {
+                    pixels[cell] = palette[snapshot.getCode(cell)];
                 }
-                yScale = size.height / gridHeight;
-                if(yScale < 1) {
-                    yScale = GRID_VIEW_SCALING_FACTOR;
+                drawnPalette = palette;
+                repaint();
+                return;
+            }
+
+            int minRow = gridHeight, maxRow = -1;
+            int minCol = gridWidth, maxCol = -1;
+            for(int cell = snapshot.nextChangedCell(0); cell >= 0;
+                cell = snapshot.nextChangedCell(cell + 1)) {
+                pixels[cell] = palette[snapshot.getCode(cell)];
+                int row = cell / gridWidth;
+                int col = cell % gridWidth;
+                minRow = Math.min(minRow, row);
+                maxRow = Math.max(maxRow, row);
+                minCol = Math.min(minCol, col);
+                maxCol = Math.max(maxCol, col);
+            }
+            if(maxRow >= 0) {
+                // The component's pixels covering the changed cells.
+                int left = minCol * getWidth() / gridWidth;
+                int top = minRow * getHeight() / gridHeight;
+                int right = ((maxCol + 1) * getWidth() + gridWidth - 1) / gridWidth;
+                int bottom = ((maxRow + 1) * getHeight() + gridHeight - 1) / gridHeight;
+                repaint(left, top, right - left, bottom - top);
+            }
+        }
+
+        /**
+         * Draw the part of the summary in view, at the level shown. The
+         * cost depends on the size of the view, not of the field.
+         */
+        private void drawSummary()
+        {
+            if(drawnPalette == null) {
+                return;
+            }
+            for(int row = 0; row < imageRows; row++) {
+                for(int col = 0; col < imageCols; col++) {
+                    int code = summary.getCode(level, originRow + row, originCol + col);
+                    pixels[row * imageCols + col] = drawnPalette[code];
                 }
             }
+            repaint();
         }
-        
+
         /**
-         * Paint on grid location on this field in a given color.
+         * Show the field in more or less detail, keeping the point
+         * clicked in view.
+         * @param x The x position clicked in the component.
+         * @param y The y position clicked in the component.
+         * @param in true to zoom in, false to zoom out.
          */
-        public void drawMark(int x, int y, Color color)
+        private void zoom(int x, int y, boolean in)
         {
-            g.setColor(color);
-            g.fillRect(x * xScale, y * yScale, xScale-1, yScale-1);
+            // The cell at the centre of the block clicked.
+            int half = (1 << level) >> 1;
+            int row = ((originRow + y * imageRows / Math.max(1, getHeight())) << level) + half;
+            int col = ((originCol + x * imageCols / Math.max(1, getWidth())) << level) + half;
+            if(in) {
+                level = level > summary.getLowLevel() ? level - 1 : 0;
+            }
+            else {
+                level = level == 0 ? summary.getLowLevel() : Math.min(level + 1, topLevel);
+            }
+            int rows = summary.getBlockRows(level);
+            int cols = summary.getBlockCols(level);
+            originRow = Math.max(0, Math.min((row >> level) - imageRows / 2, rows - imageRows));
+            originCol = Math.max(0, Math.min((col >> level) - imageCols / 2, cols - imageCols));
+            drawSummary();
         }
 
         /**
          * The field view component needs to be redisplayed. Copy the
-         * internal image to screen.
+         * image to screen, scaled to fill the component.
          */
         public void paintComponent(Graphics g)
         {
-            if(fieldImage != null) {
-                Dimension currentSize = getSize();
-                if(size.equals(currentSize)) {
-                    g.drawImage(fieldImage, 0, 0, null);
-                }
-                else {
-                    // Rescale the previous image.
-                    g.drawImage(fieldImage, 0, 0, currentSize.width, currentSize.height, null);
-                }
-            }
+            super.paintComponent(g);
+            g.drawImage(fieldImage, 0, 0, getWidth(), getHeight(), null);
         }
     }
 }
@@ -9,39 +9,48 @@ import java.util.*;
  */
 public class Snake extends Predator
 {
-    // Characteristics shared by all snakes (class variables).
-    // The age at which a snake can start to breed.
-    private static final int BREEDING_AGE = 15;
-    // The age to which a snake can live.
-    private static final int MAX_AGE = 250;
-    // The likelihood of a snake breeding.
-    private static final double BREEDING_PROBABILITY = 0.35;
-    // The maximum number of births.
-    private static final int MAX_LITTER_SIZE = 30;
-    // Snakes are mostly diurnal (active at day).
-    // The likelihood of a snake hunting at night.
-    private static final double NIGHT_HUNT_PROBABILITY = 0.25;
-    // The likelihood of a snake hunting at night.
-    private static final double DAY_HUNT_PROBABILITY = 0.9;
-    
+    /**
+     * Create a snake. A snake can be created as a new born (age zero
+     * and not hungry) or with a random age and food level.
+     * The default parameters are used.
+     * 
+     * @param randomAge If true, the snake will have random age and hunger level.
+     * @param location The location within the field.
+     * @param random The animal's own stream of random numbers.
+     */
+    public Snake(boolean randomAge, Location location, SplittableRandom random)
+    {
+        this(Parameters.DEFAULTS, randomAge, location, random);
+    }
+
     /**
      * Create a snake. A snake can be created as a new born (age zero
      * and not hungry) or with a random age and food level.
      * 
+     * @param parameters The parameters of the simulation.
      * @param randomAge If true, the snake will have random age and hunger level.
      * @param location The location within the field.
+     * @param random The animal's own stream of random numbers.
      */
-    public Snake(boolean randomAge, Location location)
+    public Snake(Parameters parameters, boolean randomAge, Location location, SplittableRandom random)
     {
-        super(location, Armadillo.class);
+        super(parameters, location, random);
         if(randomAge) {
-            setAge(randInt(MAX_AGE));
+            setAge(randInt(getParameters().getInt(Parameter.SNAKE_MAX_AGE)));
         }
         else {
             setAge(0);
         }
     }
 
+    /**
+     * @return The species of this snake.
+     */
+    public Species getSpecies()
+    {
+        return Species.SNAKE;
+    }
+
     @Override
     public String toString() {
         return "Snake{" +
@@ -53,26 +62,11 @@ public class Snake extends Predator
     }
 
     /**
-     * Check if the snake is too old to live.
+     * @return The age to which a snake can live.
      */
-    protected void checkIfTooOld()
+    protected int getMaxAge()
     {
-        if(getAge() > MAX_AGE) {
-            setDead();
-        }
-    }
-    
-    /**
-     * Check if the given animal is a prey of Snake.
-     * @param animal The animal to check if its a prey.
-     * @return true, if the animal is a prey, otherwise false.
-     */
-    protected boolean isPrey(Animal animal) {
-        if (animal instanceof Armadillo armadillo) {
-            return true;
-        } else {
-            return false;
-        }
+        return getParameters().getInt(Parameter.SNAKE_MAX_AGE);
     }
     
     /**
@@ -82,7 +76,8 @@ public class Snake extends Predator
      */
     protected boolean breedSuccess()
     {
-        return getAge() >= BREEDING_AGE && randDouble() <= BREEDING_PROBABILITY;
+        return getAge() >= getParameters().getInt(Parameter.SNAKE_BREEDING_AGE)
+            && randDouble() <= getParameters().get(Parameter.SNAKE_BREEDING_PROBABILITY);
     }
     
     /**
@@ -91,7 +86,7 @@ public class Snake extends Predator
      * @return The offspring.
      */
     protected Animal offspring(Location loc) {
-        Snake young = new Snake(false,loc);
+        Snake young = new Snake(getParameters(), false, loc, getRandom().split());
         return young;
     }
     
@@ -100,7 +95,7 @@ public class Snake extends Predator
      * @return Number of offspring.
      */
     protected int birthNumber() {
-        return randInt(MAX_LITTER_SIZE) + 1;
+        return randInt(getParameters().getInt(Parameter.SNAKE_MAX_LITTER_SIZE)) + 1;
     }
     
     /**
@@ -110,10 +105,10 @@ public class Snake extends Predator
      */
     public boolean huntSuccess(Time time) {
         if (time == Time.NIGHT) {
-            return randDouble() <= NIGHT_HUNT_PROBABILITY;
+            return randDouble() <= getParameters().get(Parameter.SNAKE_NIGHT_HUNT_PROBABILITY);
         } 
         else {
-            return randDouble() <= DAY_HUNT_PROBABILITY;
+            return randDouble() <= getParameters().get(Parameter.SNAKE_DAY_HUNT_PROBABILITY);
         }
     }
 }
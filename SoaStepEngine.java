@@ -0,0 +1,20 @@
+/**
+ * A step engine that runs the animals from an AnimalStore, which keeps
+ * their state in parallel arrays rather than reading it from the Animal
+ * objects, on a single thread. A run has the same outcome as with
+ * SequentialStepEngine. The plants are built as by that engine.
+ *
+ * @author Alexander Sukhin
+ * @version 27/02/2025
+ */
+public class SoaStepEngine implements StepEngine
+{
+    // The state of the animals of the field being stepped.
+    private final AnimalStore store = new AnimalStore();
+
+    public void step(Field field, Field nextFieldState, Time time, Weather weather)
+    {
+        store.step(field, nextFieldState, time, weather);
+        PlantSchedule.step(field, nextFieldState, time, null);
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Enumeration class Species - the kinds of organism in the simulation.
+ * Each species has a small integer id, which can be used to index
+ * per-species arrays, and a diet recording which species it eats.
+ * A new species is added here, with its diet, and needs no changes
+ * to Field or the statistics.
+ *
+ * @author Alexander Sukhin
+ * @version 20/02/2025
+ */
+public enum Species
+{
+    ARMADILLO("Armadillo", true),
+    OCELOT("Ocelot", true),
+    DEER("Deer", true),
+    SNAKE("Snake", true),
+    JAGUAR("Jaguar", true),
+    CORE_PLANT("CorePlant", false),
+    LEAF_CELL("LeafCell", false);
+
+    // The number of species.
+    public static final int COUNT = values().length;
+    
+    private final String nameString;
+    // Whether this species is an animal rather than a plant.
+    private final boolean animal;
+    // The species eaten by this one, one bit per species id.
+    private long diet;
+
+    static {
+        // The diet matrix: who eats whom.
+        OCELOT.addFood(ARMADILLO);
+        SNAKE.addFood(ARMADILLO);
+        JAGUAR.addFood(DEER);
+        ARMADILLO.addFood(LEAF_CELL);
+        DEER.addFood(LEAF_CELL);
+    }
+
+    /**
+     * Initialise with the corresponding string.
+     * @param nameString The name string.
+     * @param animal Whether the species is an animal.
+     */
+    Species(String nameString, boolean animal)
+    {
+        this.nameString = nameString;
+        this.animal = animal;
+    }
+
+    /**
+     * @return The small integer id of this species, 0 to COUNT-1.
+     */
+    public int id()
+    {
+        return ordinal();
+    }
+
+    /**
+     * @return true if this species is an animal, false for a plant.
+     */
+    public boolean isAnimal()
+    {
+        return animal;
+    }
+
+    /**
+     * Check whether this species eats another.
+     * @param food The species that might be eaten.
+     * @return true if food is part of this species' diet.
+     */
+    public boolean eats(Species food)
+    {
+        return (diet & (1L << food.ordinal())) != 0;
+    }
+
+    /**
+     * @return The name word as a string.
+     */
+    public String toString()
+    {
+        return nameString;
+    }
+
+    /**
+     * Add a species to this one's diet.
+     * @param food The species that is eaten.
+     */
+    private void addFood(Species food)
+    {
+        diet |= 1L << food.ordinal();
+    }
+}
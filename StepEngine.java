@@ -0,0 +1,19 @@
+/**
+ * A way of advancing the simulation by one step: building the next
+ * state of the field from the current one.
+ *
+ * @author Aryan Sanvee Vijayan
+ * @version 24/02/2025
+ */
+public interface StepEngine
+{
+    /**
+     * Let every animal and plant in the current field act, building
+     * the next state of the field. The next field must be empty.
+     * @param field The current state of the field.
+     * @param nextFieldState The new state being built.
+     * @param time The time of day/night.
+     * @param weather The current weather conditions.
+     */
+    void step(Field field, Field nextFieldState, Time time, Weather weather);
+}
@@ -0,0 +1,88 @@
+/**
+ * Enumeration class StorageType - the ways a Field can store its cells.
+ *
+ * @author Alexander Sukhin
+ * @version 22/02/2025
+ */
+public enum StorageType
+{
+    // One array entry per cell. Fastest, for fields that fit in memory.
+    DENSE("dense"),
+    // Tiles allocated only where there is something, for huge, mostly
+    // empty fields.
+    CHUNKED("chunked"),
+    // Packed records outside the Java heap, for very large fields.
+    OFF_HEAP("off-heap");
+
+    private String nameString;
+
+    /**
+     * Initialise with the corresponding string.
+     * @param nameString The name string.
+     */
+    StorageType(String nameString)
+    {
+        this.nameString = nameString;
+    }
+
+    /**
+     * Create empty storage of this type.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @return The new storage.
+     */
+    public CellStorage create(int depth, int width)
+    {
+        switch(this) {
+            case CHUNKED:
+                return new ChunkedStorage(depth, width);
+            case OFF_HEAP:
+                return new OffHeapStorage(depth, width);
+            default:
+                return new DenseStorage(depth * width);
+        }
+    }
+
+    /**
+     * Whether a field using this storage keeps one shared Location
+     * per cell. That is only affordable when every cell has storage
+     * anyway: a table for a huge, mostly empty field would cost more
+     * than the cells themselves, and its locations could never be
+     * freed. Other fields create a new Location on each request, and
+     * their locations can only be compared with equals.
+     * @return true if locations are shared.
+     */
+    public boolean sharesLocations()
+    {
+        return this == DENSE;
+    }
+
+    /**
+     * Whether a field using this storage holds only the parts of the
+     * field where there is something, and so should keep its other
+     * per-cell data, such as occupancy bits, sparse as well.
+     * @return true if the storage is sparse.
+     */
+    public boolean isSparse()
+    {
+        return this == CHUNKED;
+    }
+
+    /**
+     * Whether several threads may write to different cells of this
+     * storage at once. Other storage is written by one thread at a time.
+     * @return true if concurrent writes are safe.
+     */
+    public boolean supportsConcurrentWrites()
+    {
+        return this == DENSE;
+    }
+
+    /**
+     * @return The name word as a string.
+     */
+    public String toString()
+    {
+        return nameString;
+    }
+}
@@ -0,0 +1,281 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A parameter sweep: runs a simulation for many sets of parameter
+ * values and writes summary metrics of every run to a CSV file. The
+ * sets of values, or points, are added as a grid of every combination
+ * of given values, or as a random sample from given ranges, and each
+ * point is run for a number of replicas. Replica r of every point uses
+ * seed firstSeed + r, so points are compared on the same random
+ * starting populations.
+ *
+ * The runs are spread over a fixed number of threads, and each run's
+ * row is written as soon as it and the runs before it are finished,
+ * so the file fills in as the sweep goes and its rows are always in
+ * the same order. A run stops when some species of animal dies out.
+ *
+ * Each row holds the point and seed, the values of the parameters the
+ * sweep varies, the number of steps run, the step at which the first
+ * species died out (-1 if none did), and the mean number of animals of
+ * each species, of infected animals and of plants over the run,
+ * counting the starting population.
+ *
+ * @author Alexander Sukhin
+ * @version 27/02/2025
+ */
+public class Sweep
+{
+    // The dimensions of the field of each run.
+    private final int depth, width;
+    // The largest number of steps in a run.
+    private final int steps;
+    // The number of runs of each point.
+    private final int replicas;
+    // The number of runs made at once.
+    private final int threads;
+    // The values of the parameters the sweep does not vary.
+    private final Parameters base;
+    // The points to run.
+    private final List<Parameters> points = new ArrayList<>();
+    // The parameters varied by some point.
+    private final EnumSet<Parameter> varied = EnumSet.noneOf(Parameter.class);
+
+    /**
+     * Create an empty sweep varying the default parameters, using one
+     * thread for each available core.
+     * @param depth The depth of the field of each run.
+     * @param width The width of the field of each run.
+     * @param steps The largest number of steps in a run.
+     * @param replicas The number of runs of each point.
+     */
+    public Sweep(int depth, int width, int steps, int replicas)
+    {
+        this(depth, width, steps, replicas, Runtime.getRuntime().availableProcessors(),
+             Parameters.DEFAULTS);
+    }
+
+    /**
+     * Create an empty sweep.
+     * @param depth The depth of the field of each run.
+     * @param width The width of the field of each run.
+     * @param steps The largest number of steps in a run.
+     * @param replicas The number of runs of each point.
+     * @param threads The number of runs to make at once.
+     * @param base The values of the parameters the sweep does not vary.
+     */
+    public Sweep(int depth, int width, int steps, int replicas, int threads, Parameters base)
+    {
+        if(steps < 0 || replicas < 1) {
+            throw new IllegalArgumentException("A sweep needs some steps and replicas: "
+                                               + steps + " steps, " + replicas + " replicas");
+        }
+        if(threads < 1) {
+            throw new IllegalArgumentException("A sweep needs at least one thread: " + threads);
+        }
+        this.depth = depth;
+        this.width = width;
+        this.steps = steps;
+        this.replicas = replicas;
+        this.threads = threads;
+        this.base = base;
+    }
+
+    /**
+     * Add a point for every combination of the given values.
+     * @param values The values to try for each parameter.
+     * @throws IllegalArgumentException If a value is out of range.
+     */
+    public void addGrid(Map<Parameter, double[]> values)
+    {
+        List<Parameters> grid = new ArrayList<>();
+        grid.add(base);
+        for(Map.Entry<Parameter, double[]> entry : values.entrySet()) {
+            List<Parameters> expanded = new ArrayList<>();
+            for(Parameters point : grid) {
+                for(double value : entry.getValue()) {
+                    expanded.add(point.with(entry.getKey(), value));
+                }
+            }
+            grid = expanded;
+            varied.add(entry.getKey());
+        }
+        points.addAll(grid);
+    }
+
+    /**
+     * Add points whose values are drawn at random, each parameter
+     * uniformly from its range.
+     * @param ranges The lowest and highest value of each parameter.
+     * @param count The number of points to add.
+     * @param seed The seed of the random values.
+     * @throws IllegalArgumentException If a range is out of bounds.
+     */
+    public void addSample(Map<Parameter, double[]> ranges, int count, long seed)
+    {
+        SplittableRandom random = Randomizer.getRandom(seed);
+        for(int i = 0; i < count; i++) {
+            Parameters point = base;
+            for(Map.Entry<Parameter, double[]> entry : ranges.entrySet()) {
+                double low = entry.getValue()[0];
+                double high = entry.getValue()[1];
+                point = point.with(entry.getKey(), low + random.nextDouble() * (high - low));
+            }
+            points.add(point);
+        }
+        varied.addAll(ranges.keySet());
+    }
+
+    /**
+     * @return The number of points added so far.
+     */
+    public int getPointCount()
+    {
+        return points.size();
+    }
+
+    /**
+     * Run every replica of every point, writing the results to a file.
+     * @param firstSeed The seed of the first replica of each point.
+     * @param results The file to write, which is replaced.
+     * @throws IOException If the file cannot be written.
+     */
+    public void run(long firstSeed, Path results) throws IOException
+    {
+        try(Writer out = Files.newBufferedWriter(results)) {
+            run(firstSeed, out);
+        }
+    }
+
+    /**
+     * Run every replica of every point, writing the results as CSV.
+     * Each row is flushed once written.
+     * @param firstSeed The seed of the first replica of each point.
+     * @param out Where to write the results.
+     * @throws IOException If the results cannot be written.
+     */
+    public void run(long firstSeed, Writer out) throws IOException
+    {
+        out.write(header());
+        out.flush();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> rows = new ArrayList<>();
+            for(int point = 0; point < points.size(); point++) {
+                for(int replica = 0; replica < replicas; replica++) {
+                    int index = point;
+                    long seed = firstSeed + replica;
+                    rows.add(executor.submit(() -> runOnce(index, seed)));
+                }
+            }
+            for(Future<String> row : rows) {
+                out.write(row.get());
+                out.flush();
+            }
+        }
+        catch(ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("A run failed", e.getCause());
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running the sweep", e);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return The header row of the results.
+     */
+    private String header()
+    {
+        StringBuilder row = new StringBuilder("point,seed");
+        for(Parameter parameter : varied) {
+            row.append(',').append(parameter.name());
+        }
+        row.append(",steps,extinction_step");
+        for(Species species : Species.values()) {
+            if(species.isAnimal()) {
+                row.append(",mean_").append(species.name().toLowerCase(Locale.ROOT));
+            }
+        }
+        return row.append(",mean_infected,mean_plants\n").toString();
+    }
+
+    /**
+     * Run one replica of a point.
+     * @param point The index of the point.
+     * @param seed The seed of the run.
+     * @return The row of results.
+     */
+    private String runOnce(int point, long seed)
+    {
+        Parameters parameters = points.get(point);
+        Simulator simulator = new Simulator(depth, width, StorageType.DENSE, false, parameters, seed);
+        long[] totals = new long[Species.COUNT];
+        long infected = 0;
+        long plants = 0;
+        int extinctionStep = -1;
+        int samples = 0;
+        for(int step = 0; step <= steps && extinctionStep < 0; step++) {
+            if(step > 0) {
+                simulator.simulateOneStep();
+            }
+            Field field = simulator.getField();
+            for(Species species : Species.values()) {
+                totals[species.id()] += field.getCount(species);
+            }
+            infected += field.infectedCount();
+            plants += field.getPlants().size();
+            samples++;
+            if(!field.isViable()) {
+                extinctionStep = step;
+            }
+        }
+
+        StringBuilder row = new StringBuilder();
+        row.append(point).append(',').append(seed);
+        for(Parameter parameter : varied) {
+            row.append(',');
+            if(parameter.getKind() == Parameter.Kind.PROBABILITY) {
+                row.append(parameters.get(parameter));
+            }
+            else {
+                row.append(parameters.getInt(parameter));
+            }
+        }
+        row.append(',').append(samples - 1).append(',').append(extinctionStep);
+        for(Species species : Species.values()) {
+            if(species.isAnimal()) {
+                row.append(',').append(mean(totals[species.id()], samples));
+            }
+        }
+        row.append(',').append(mean(infected, samples));
+        row.append(',').append(mean(plants, samples));
+        return row.append('\n').toString();
+    }
+
+    /**
+     * @return A total divided by a count, to two decimal places.
+     */
+    private static String mean(long total, int count)
+    {
+        return String.format(Locale.ROOT, "%.2f", (double) total / count);
+    }
+}
@@ -0,0 +1,386 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * A step engine that cuts the field into rectangular blocks and
+ * processes them as fork/join tasks. By default the blocks are square
+ * tiles of equal size. Each block gathers the animals in its own cells,
+ * row by row, so a block's work stays within a small part
+ * of the field rather than following the order of the field's
+ * registries.
+ *
+ * Proposals only read the current field, including a one-cell halo
+ * around each block, so all blocks propose at once. Resolving reads and
+ * writes up to two cells beyond a block (a predator removing prey that
+ * has moved away from it), so the blocks are resolved in waves: two
+ * blocks closer than four cells apart are never in the same wave.
+ * Writes across a block boundary therefore never meet writes from
+ * another block of the same wave. The changes each block makes to the
+ * registries and counts are collected in a FieldShard and handed over
+ * to the field at the end of the step, in block order, so the result
+ * is the same however many threads are used. Plants are then carried
+ * over by PlantSchedule, in the same pool.
+ *
+ * Only dense storage can be written by several threads at once; with
+ * other storage types the blocks are resolved in the same order on the
+ * calling thread.
+ *
+ * @author Aryan Sanvee Vijayan
+ * @version 27/02/2025
+ */
+public class TiledStepEngine implements StepEngine
+{
+    // The smallest block side. Blocks in the same wave are separated
+    // by at least one other block, which must be wider than the four
+    // cells between the furthest reaches of two organisms.
+    public static final int MIN_TILE_SIZE = 4;
+    // The tile side used by default.
+    public static final int DEFAULT_TILE_SIZE = 32;
+    // Blocks closer together than this many cells conflict.
+    private static final int REACH = 4;
+
+    // The length of a side of a tile in the initial layout.
+    private final int tileSize;
+    // The pool running the block tasks.
+    private final ForkJoinPool pool;
+
+    // The dimensions of the field the blocks were laid out for.
+    private int depth, width;
+    // The bounds of each block: first row and column, and the row and
+    // column just past it.
+    private int[] tops, lefts, bottoms, rights;
+    // The number of blocks.
+    private int blockCount;
+    // The indices of all blocks, and of the blocks in each wave.
+    private int[] allBlocks;
+    private int[][] waves;
+    // The animals of each block, in cell order.
+    private Animal[][] blockAnimals;
+    private int[] animalCounts;
+    // The proposals of each block's animals.
+    private Proposal[][] blockProposals;
+    // The changes each block makes to the next field.
+    private FieldShard[] shards;
+    // The time each thread has spent on blocks, in nanoseconds. Each
+    // entry is only updated by its own thread.
+    private final Map<Thread, long[]> busyTimes = new ConcurrentHashMap<>();
+
+    /**
+     * Create an engine with tiles of the default size, running on the
+     * common fork/join pool.
+     */
+    public TiledStepEngine()
+    {
+        this(DEFAULT_TILE_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create an engine with tiles of the given size.
+     * @param tileSize The length of a side of a tile, at least
+     *                 MIN_TILE_SIZE.
+     * @param pool The pool to run the block tasks in.
+     */
+    public TiledStepEngine(int tileSize, ForkJoinPool pool)
+    {
+        if(tileSize < MIN_TILE_SIZE) {
+            throw new IllegalArgumentException("Tiles must be at least " + MIN_TILE_SIZE
+                                               + " cells on a side: " + tileSize);
+        }
+        this.tileSize = tileSize;
+        this.pool = pool;
+    }
+
+    public void step(Field field, Field nextFieldState, Time time, Weather weather)
+    {
+        if(field.getDepth() != depth || field.getWidth() != width || allBlocks == null) {
+            depth = field.getDepth();
+            width = field.getWidth();
+            layOut(field);
+        }
+        else {
+            relayOut(field);
+        }
+        boolean parallel = field.getStorageType().supportsConcurrentWrites();
+        DeathSchedule.step(field, nextFieldState);
+
+        run(allBlocks, true, block -> {
+            gather(block, field);
+            Animal[] animals = blockAnimals[block];
+            Proposal[] proposals = blockProposals[block];
+            for(int i = 0; i < animalCounts[block]; i++) {
+                proposals[i] = animals[i].propose(field, time, weather);
+            }
+        });
+
+        nextFieldState.beginSharding();
+        for(int[] wave : waves) {
+            run(wave, parallel, block -> {
+                nextFieldState.useShard(shards[block]);
+                Animal[] animals = blockAnimals[block];
+                Proposal[] proposals = blockProposals[block];
+                for(int i = 0; i < animalCounts[block]; i++) {
+                    animals[i].resolve(proposals[i], nextFieldState);
+                    animals[i] = null;
+                    proposals[i] = null;
+                }
+                nextFieldState.useShard(null);
+            });
+        }
+        nextFieldState.endSharding(shards);
+        PlantSchedule.step(field, nextFieldState, time, parallel ? pool : null);
+    }
+
+    /**
+     * Return the time each thread has spent working on blocks since
+     * the engine was created or the times were last reset. Comparing
+     * the times shows how evenly the work is spread.
+     * @return The busy time of each thread in milliseconds, by name.
+     */
+    public Map<String, Long> getBusyTimes()
+    {
+        Map<String, Long> times = new LinkedHashMap<>();
+        for(Map.Entry<Thread, long[]> entry : busyTimes.entrySet()) {
+            times.put(entry.getKey().getName(), entry.getValue()[0] / 1_000_000);
+        }
+        return times;
+    }
+
+    /**
+     * Print the busy time of each thread, and the ratio of the longest
+     * to the mean: 1.0 when the work is perfectly balanced.
+     */
+    public void printBusyTimes()
+    {
+        long total = 0;
+        long longest = 0;
+        for(Map.Entry<String, Long> entry : getBusyTimes().entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue() + " ms");
+            total += entry.getValue();
+            longest = Math.max(longest, entry.getValue());
+        }
+        if(total > 0) {
+            double mean = (double) total / busyTimes.size();
+            System.out.printf("Longest/mean: %.2f%n", longest / mean);
+        }
+    }
+
+    /**
+     * Forget the busy times recorded so far.
+     */
+    public void resetBusyTimes()
+    {
+        busyTimes.clear();
+    }
+
+    /**
+     * @return The number of blocks the field is currently cut into.
+     */
+    public int getBlockCount()
+    {
+        return blockCount;
+    }
+
+    /**
+     * Lay the blocks out over a field seen for the first time. By
+     * default the field is cut into equal square tiles.
+     * @param field The field.
+     */
+    protected void layOut(Field field)
+    {
+        int tilesDown = (depth + tileSize - 1) / tileSize;
+        int tilesAcross = (width + tileSize - 1) / tileSize;
+        int[][] blocks = new int[tilesDown * tilesAcross][];
+        for(int row = 0; row < tilesDown; row++) {
+            for(int col = 0; col < tilesAcross; col++) {
+                blocks[row * tilesAcross + col] = new int[] {
+                    row * tileSize, col * tileSize,
+                    Math.min((row + 1) * tileSize, depth), Math.min((col + 1) * tileSize, width)
+                };
+            }
+        }
+        setBlocks(blocks);
+    }
+
+    /**
+     * Adjust the blocks before a step, if need be. By default the
+     * layout never changes.
+     * @param field The current state of the field.
+     */
+    protected void relayOut(Field field)
+    {
+    }
+
+    /**
+     * Use the given blocks from the next step on, and group them into
+     * waves. Each block is given as {top, left, bottom, right}, with
+     * bottom and right just past the block; together the blocks must
+     * cover the field without overlapping, and each must be at least
+     * MIN_TILE_SIZE cells on a side unless the field itself is smaller.
+     * @param blocks The blocks.
+     */
+    protected void setBlocks(int[][] blocks)
+    {
+        blockCount = blocks.length;
+        tops = new int[blockCount];
+        lefts = new int[blockCount];
+        bottoms = new int[blockCount];
+        rights = new int[blockCount];
+        allBlocks = new int[blockCount];
+        for(int block = 0; block < blockCount; block++) {
+            tops[block] = blocks[block][0];
+            lefts[block] = blocks[block][1];
+            bottoms[block] = blocks[block][2];
+            rights[block] = blocks[block][3];
+            allBlocks[block] = block;
+        }
+        waves = colour();
+        blockAnimals = new Animal[blockCount][16];
+        animalCounts = new int[blockCount];
+        blockProposals = new Proposal[blockCount][16];
+        shards = new FieldShard[blockCount];
+        for(int block = 0; block < blockCount; block++) {
+            shards[block] = new FieldShard();
+        }
+    }
+
+    /**
+     * Group the blocks into waves, giving each block the first wave
+     * holding no block it conflicts with.
+     * @return The indices of the blocks in each wave.
+     */
+    private int[][] colour()
+    {
+        int[] waveOf = new int[blockCount];
+        int waveCount = 0;
+        boolean[] taken = new boolean[blockCount + 1];
+        for(int block = 0; block < blockCount; block++) {
+            Arrays.fill(taken, false);
+            for(int other = 0; other < block; other++) {
+                if(conflict(block, other)) {
+                    taken[waveOf[other]] = true;
+                }
+            }
+            int wave = 0;
+            while(taken[wave]) {
+                wave++;
+            }
+            waveOf[block] = wave;
+            waveCount = Math.max(waveCount, wave + 1);
+        }
+        int[] sizes = new int[waveCount];
+        for(int block = 0; block < blockCount; block++) {
+            sizes[waveOf[block]]++;
+        }
+        int[][] waves = new int[waveCount][];
+        for(int wave = 0; wave < waveCount; wave++) {
+            waves[wave] = new int[sizes[wave]];
+            sizes[wave] = 0;
+        }
+        for(int block = 0; block < blockCount; block++) {
+            int wave = waveOf[block];
+            waves[wave][sizes[wave]++] = block;
+        }
+        return waves;
+    }
+
+    /**
+     * @return true if two blocks are too close to be resolved at once.
+     */
+    private boolean conflict(int a, int b)
+    {
+        int rowGap = Math.max(tops[b] - bottoms[a], tops[a] - bottoms[b]);
+        int colGap = Math.max(lefts[b] - rights[a], lefts[a] - rights[b]);
+        return rowGap < REACH && colGap < REACH;
+    }
+
+    /**
+     * Collect the animals in a block of the current field.
+     * @param block The index of the block.
+     * @param field The current state of the field.
+     */
+    private void gather(int block, Field field)
+    {
+        Animal[] animals = blockAnimals[block];
+        int animalCount = 0;
+        for(int row = tops[block]; row < bottoms[block]; row++) {
+            int end = row * width + rights[block];
+            for(int cell = row * width + lefts[block]; cell < end; cell++) {
+                if(!field.isFree(cell)) {
+                    if(animalCount == animals.length) {
+                        animals = Arrays.copyOf(animals, animalCount * 2);
+                    }
+                    animals[animalCount++] = field.getAnimalAt(cell);
+                }
+            }
+        }
+        blockAnimals[block] = animals;
+        animalCounts[block] = animalCount;
+        if(blockProposals[block].length < animals.length) {
+            blockProposals[block] = new Proposal[animals.length];
+        }
+    }
+
+    /**
+     * Do something for each of a set of blocks, recording how long
+     * each thread spends on them.
+     * @param blocks The indices of the blocks.
+     * @param parallel Whether the blocks may be processed at once.
+     * @param action What to do for a block.
+     */
+    private void run(int[] blocks, boolean parallel, IntConsumer action)
+    {
+        IntConsumer timed = block -> {
+            long start = System.nanoTime();
+            action.accept(block);
+            busyTimes.computeIfAbsent(Thread.currentThread(), thread -> new long[1])[0]
+                += System.nanoTime() - start;
+        };
+        if(parallel && blocks.length > 1) {
+            pool.invoke(new BlockTask(blocks, 0, blocks.length, timed));
+        }
+        else {
+            for(int block : blocks) {
+                timed.accept(block);
+            }
+        }
+    }
+
+    /**
+     * A task processing a range of blocks, splitting it in half until
+     * one block is left.
+     */
+    private static class BlockTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] blocks;
+        private final int from, to;
+        private final IntConsumer action;
+
+        BlockTask(int[] blocks, int from, int to, IntConsumer action)
+        {
+            this.blocks = blocks;
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to - from == 1) {
+                action.accept(blocks[from]);
+            }
+            else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BlockTask(blocks, from, middle, action),
+                          new BlockTask(blocks, middle, to, action));
+            }
+        }
+    }
+}
@@ -1,4 +1,4 @@
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Enumeration class Weather - represents possible states of weather.
@@ -8,23 +8,32 @@ import java.util.Random;
  */
 public enum Weather
 {
-    RAIN("rain"), 
-    STORM("storm"), 
-    CLEAR("clear"), 
-    CLOUDY("cloudy");
-    
-    // Random generator for weather
-    private static final Random rand = Randomizer.getRandom();
+    RAIN("rain", 0.6), 
+    STORM("storm", 0.4), 
+    CLEAR("clear", 1.0), 
+    CLOUDY("cloudy", 0.8);
     
     private String nameString;
+    // The likelihood that an animal acts in this weather.
+    private double activity;
     
     /**
      * Initialise with the corresponding string.
      * @param nameString The name string.
+     * @param activity The likelihood that an animal acts.
      */
-    Weather(String nameString)
+    Weather(String nameString, double activity)
     {
         this.nameString = nameString;
+        this.activity = activity;
+    }
+
+    /**
+     * @return The likelihood that an animal acts in this weather.
+     */
+    public double getActivity()
+    {
+        return activity;
     }
 
     /**
@@ -37,10 +46,11 @@ public enum Weather
     
     /**
      * Return a random Weather from the ones declared.
+     * @param random The random number stream to draw from.
      * @return Random weather
      */
-    public static Weather randomWeather()  {
+    public static Weather randomWeather(SplittableRandom random)  {
         Weather[] weathers = values();
-        return weathers[rand.nextInt(weathers.length)];
+        return weathers[random.nextInt(weathers.length)];
     }
 }